@@ -0,0 +1,44 @@
+package benchmarks;
+
+import enums.CrossoverMethod;
+import enums.MutationMethod;
+import enums.SelectionMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a single child made of two parents into the next population
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrossoverBenchmark {
+    @Param({"100", "1000"})
+    public int populationSize;
+    @Param
+    public Target target;
+    @Param
+    public CrossoverMethod crossoverMethod;
+
+    private Object genetics, worker;
+    private MethodHandle crossover;
+    private int child;
+
+    @Setup
+    public void setUp(){
+        genetics = Engine.genetics(target, populationSize, SelectionMethod.TOURNAMENT, crossoverMethod, MutationMethod.CHROMOSOME);
+        worker = Engine.worker(genetics);
+        crossover = Engine.crossover(crossoverMethod);
+    }
+
+    @Benchmark
+    public void crossover() throws Throwable {
+        child = child + 1 == populationSize ? 0 : child + 1;
+        crossover.invokeExact(genetics, child, populationSize - 1 - child, child, worker);
+    }
+}
@@ -0,0 +1,166 @@
+package benchmarks;
+
+import enums.CrossoverMethod;
+import enums.EndCondition;
+import enums.MutationMethod;
+import enums.PopulationStorage;
+import enums.SelectionMethod;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Access to engine internals for benchmarks
+ * Engine classes live in the default package, which cannot be imported, while JMH refuses benchmarks in the default package,
+ * so everything goes through method handles erased to Object types that benchmarks call with invokeExact
+ */
+final class Engine {
+    static final MethodHandle RANGE_FITNESS = method("Melody", "rangeFitness");
+    static final MethodHandle RANDOM_GENE = method("MelodyUtil", "randomGene", 1);
+    /** Batched evaluation of melodies in a flat gene array and the target layout it reads, called on the instance returned by kernel() */
+    static final MethodHandle BATCH_TARGET = method("FitnessKernel", "batchTarget");
+    static final MethodHandle EVALUATE = method("FitnessKernel", "evaluate", 6);
+    static final MethodHandle INITIALIZE = method("Genetics", "initialize");
+    static final MethodHandle STEP = method("Genetics", "step");
+    static final MethodHandle SELECT = method("Genetics", "select");
+    static final MethodHandle ONE_POINT_CROSSOVER = method("Genetics", "onePointCrossover");
+    static final MethodHandle TWO_POINT_CROSSOVER = method("Genetics", "twoPointCrossover");
+    static final MethodHandle UNIFORM_CROSSOVER = method("Genetics", "uniformCrossover");
+    static final MethodHandle MUTATE = method("Genetics", "mutate");
+
+    private Engine(){}
+
+    /**
+     * Parses target with the engine's own parser
+     * @param target
+     * @return Melody object
+     */
+    static Object melody(Target target){
+        try {
+            return type("MelodyUtil").getMethod("stringToMelody", String.class).invoke(null, target.notes());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param target
+     * @return packed notes of target
+     */
+    static short[] genes(Target target){
+        try {
+            Object melody = melody(target);
+            return (short[]) melody.getClass().getMethod("getGenes").invoke(melody);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return class name of the fitness kernel the engine uses, choosing it if not chosen yet
+     */
+    static String fitnessKernel(){
+        return kernel().getClass().getName();
+    }
+
+    /**
+     * @return fitness kernel the engine uses, choosing it if not chosen yet
+     */
+    static Object kernel(){
+        try {
+            Field instance = type("FitnessKernel").getField("INSTANCE");
+            instance.setAccessible(true);
+            return instance.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds a Genetics object, runs its initial population and one generation so selection tables are in place
+     * @return Genetics object
+     */
+    static Object genetics(Target target, int populationSize, SelectionMethod selectionMethod, CrossoverMethod crossoverMethod, MutationMethod mutationMethod){
+        return genetics(target, populationSize, selectionMethod, crossoverMethod, mutationMethod, PopulationStorage.HEAP);
+    }
+
+    /**
+     * Builds a Genetics object keeping its genes in given storage, runs its initial population and one generation
+     * @return Genetics object
+     */
+    static Object genetics(Target target, int populationSize, SelectionMethod selectionMethod, CrossoverMethod crossoverMethod,
+                           MutationMethod mutationMethod, PopulationStorage populationStorage){
+        try {
+            Class<?> builderType = type("Genetics$Builder");
+            Object builder = builderType.getConstructor(int.class).newInstance(populationSize);
+            builderType.getMethod("target", type("Melody")).invoke(builder, melody(target));
+            builderType.getMethod("endCondition", EndCondition.class).invoke(builder, EndCondition.MAX_GENERATIONS);
+            builderType.getMethod("maxGenerations", int.class).invoke(builder, Integer.MAX_VALUE);
+            builderType.getMethod("selectionMethod", SelectionMethod.class).invoke(builder, selectionMethod);
+            builderType.getMethod("tournamentK", Integer.class).invoke(builder, Math.min(10, populationSize));
+            builderType.getMethod("crossoverMethod", CrossoverMethod.class).invoke(builder, crossoverMethod);
+            builderType.getMethod("mutationMethod", MutationMethod.class).invoke(builder, mutationMethod);
+            builderType.getMethod("mutationLikelihood", double.class).invoke(builder, 0.5);
+            builderType.getMethod("elitismCount", int.class).invoke(builder, 2);
+            builderType.getMethod("seed", long.class).invoke(builder, 42L);
+            builderType.getMethod("populationStorage", PopulationStorage.class).invoke(builder, populationStorage);
+            Object genetics = builderType.getMethod("build").invoke(builder);
+            INITIALIZE.invokeExact(genetics);
+            STEP.invokeExact(genetics);
+            return genetics;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param genetics initialized Genetics object
+     * @return worker of the first chunk, holding the random stream of the last generation
+     */
+    static Object worker(Object genetics){
+        try {
+            Field workers = genetics.getClass().getDeclaredField("workers");
+            workers.setAccessible(true);
+            return ((Object[]) workers.get(genetics))[0];
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static MethodHandle crossover(CrossoverMethod crossoverMethod){
+        return switch(crossoverMethod){
+            case ONE_POINT -> ONE_POINT_CROSSOVER;
+            case TWO_POINT -> TWO_POINT_CROSSOVER;
+            case UNIFORM -> UNIFORM_CROSSOVER;
+        };
+    }
+
+    private static Class<?> type(String name) throws ClassNotFoundException {
+        return Class.forName(name, false, Engine.class.getClassLoader());
+    }
+
+    private static MethodHandle method(String className, String name){
+        return method(className, name, -1);
+    }
+
+    /**
+     * @param parameterCount number of parameters of wanted overload, -1 if method is not overloaded
+     * @return handle with every reference type erased to Object
+     */
+    private static MethodHandle method(String className, String name, int parameterCount){
+        try {
+            for (Method method : type(className).getDeclaredMethods()) {
+                if(method.getName().equals(name) && (parameterCount < 0 || method.getParameterCount() == parameterCount)){
+                    method.setAccessible(true);
+                    MethodHandle handle = MethodHandles.lookup().unreflect(method);
+                    return handle.asType(handle.type().erase());
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        throw new IllegalStateException(className + "." + name + " not found");
+    }
+}
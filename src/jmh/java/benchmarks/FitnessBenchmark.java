@@ -0,0 +1,70 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full evaluation of a random melody against the target, the work behind Melody.fitness(Melody),
+ * and batched evaluation of a chunk of random melodies, the work behind evaluating a whole population,
+ * with the Vector API kernel and with the scalar fallback
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class FitnessBenchmark {
+    @Param
+    public Target target;
+
+    @Param({"true", "false"})
+    public boolean vector;
+
+    /** Melodies of a batch, the chunk size the engine evaluates a population in */
+    private static final int BATCH = 64;
+
+    private Object genes, targetGenes, batchTarget, batch, fitness, fitnessKernel;
+    private int length;
+
+    @Setup
+    public void setUp() throws Throwable {
+        //Kernel is chosen when first used, which in a fresh fork is after this
+        System.setProperty("melody.vector", Boolean.toString(vector));
+        String kernel = vector ? "VectorFitnessKernel" : "ScalarFitnessKernel";
+        if(!Engine.fitnessKernel().equals(kernel))
+            throw new IllegalStateException("Expected " + kernel + " but engine uses " + Engine.fitnessKernel() + ", run benchmarks with forks > 0");
+        length = target.length();
+        targetGenes = Engine.genes(target);
+        SplittableRandom random = new SplittableRandom(42);
+        short[] genes = new short[length];
+        for (int i = 0; i < length; i++) {
+            genes[i] = (short) Engine.RANDOM_GENE.invokeExact((Object) random);
+        }
+        this.genes = genes;
+        short[] batch = new short[BATCH * length];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = (short) Engine.RANDOM_GENE.invokeExact((Object) random);
+        }
+        this.batch = batch;
+        fitness = new int[BATCH];
+        fitnessKernel = Engine.kernel();
+        batchTarget = Engine.BATCH_TARGET.invokeExact(fitnessKernel, targetGenes);
+    }
+
+    @Benchmark
+    public int fitness() throws Throwable {
+        return (int) Engine.RANGE_FITNESS.invokeExact(genes, 0, targetGenes, 0, length);
+    }
+
+    /**
+     * Average time per melody is this divided by BATCH
+     */
+    @Benchmark
+    public Object evaluate() throws Throwable {
+        Engine.EVALUATE.invokeExact(fitnessKernel, batch, targetGenes, batchTarget, fitness, 0, BATCH);
+        return fitness;
+    }
+}
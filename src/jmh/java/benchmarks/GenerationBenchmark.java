@@ -0,0 +1,42 @@
+package benchmarks;
+
+import enums.CrossoverMethod;
+import enums.MutationMethod;
+import enums.PopulationStorage;
+import enums.SelectionMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full generation step: elitism, selection tables, offspring for the whole population and the buffer swap
+ * Run with every population storage, so the cost of keeping genes off the heap shows next to the heap
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GenerationBenchmark {
+    @Param({"100", "1000"})
+    public int populationSize;
+    @Param
+    public Target target;
+    @Param
+    public SelectionMethod selectionMethod;
+    @Param
+    public PopulationStorage populationStorage;
+
+    private Object genetics;
+
+    @Setup
+    public void setUp(){
+        genetics = Engine.genetics(target, populationSize, selectionMethod, CrossoverMethod.TWO_POINT, MutationMethod.CHROMOSOME, populationStorage);
+    }
+
+    @Benchmark
+    public void step() throws Throwable {
+        Engine.STEP.invokeExact(genetics);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import enums.CrossoverMethod;
+import enums.MutationMethod;
+import enums.SelectionMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mutating a single child in the next population with a mutation likelihood of 0.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationBenchmark {
+    @Param({"100", "1000"})
+    public int populationSize;
+    @Param
+    public Target target;
+    @Param
+    public MutationMethod mutationMethod;
+
+    private Object genetics, worker;
+    private int child;
+
+    @Setup
+    public void setUp(){
+        genetics = Engine.genetics(target, populationSize, SelectionMethod.TOURNAMENT, CrossoverMethod.TWO_POINT, mutationMethod);
+        worker = Engine.worker(genetics);
+    }
+
+    @Benchmark
+    public void mutate() throws Throwable {
+        child = child + 1 == populationSize ? 0 : child + 1;
+        Engine.MUTATE.invokeExact(genetics, child, worker);
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import enums.CrossoverMethod;
+import enums.MutationMethod;
+import enums.SelectionMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking a single parent from a population with tournament, roulette or rank selection
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectionBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int populationSize;
+    @Param({"MARY_HAD_A_LITTLE_LAMB", "ODE_TO_JOY", "SYNTHETIC_1K"})
+    public Target target;
+    @Param
+    public SelectionMethod selectionMethod;
+
+    private Object genetics, worker;
+
+    @Setup
+    public void setUp(){
+        genetics = Engine.genetics(target, populationSize, selectionMethod, CrossoverMethod.TWO_POINT, MutationMethod.CHROMOSOME);
+        worker = Engine.worker(genetics);
+    }
+
+    @Benchmark
+    public int select() throws Throwable {
+        return (int) Engine.SELECT.invokeExact(genetics, worker);
+    }
+}
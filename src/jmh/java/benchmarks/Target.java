@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Target melodies benchmarks are parameterized over: the songs listed in App and synthetic random targets
+ */
+public enum Target {
+    MARY_HAD_A_LITTLE_LAMB("E D C D E E Eh D D Dh E G Gh"),
+    HAPPY_BIRTHDAY("A A B A D C# A A B A E D A A A F# D E D A A B A D C# A A B A E D A A A F# D C# B G G F# D E D"),
+    JINGLE_BELLS("E E Eh E E Eh E G C D Ew F F F F F E E E E E D D E Dh Gh"),
+    ODE_TO_JOY("E E F G G F E D C C D E E D Dh E E F G G F E D C C D E D C Ch D D E C D F E C D F E D C D Gh E E F G G F E D C C D E D C Ch"),
+    SYNTHETIC_1K(1_000),
+    SYNTHETIC_10K(10_000),
+    SYNTHETIC_100K(100_000);
+
+    private static final String[] NOTES = {"C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"};
+    private static final String[] LENGTHS = {"w", "h", "q", "i", "s"};
+
+    private final String notes;
+    private final int length;
+
+    Target(String notes) {
+        this.notes = notes;
+        this.length = notes.split(" ").length;
+    }
+
+    Target(int length) {
+        this.notes = null;
+        this.length = length;
+    }
+
+    /**
+     * @return melody in English notation, synthetic targets are generated from a fixed seed
+     */
+    public String notes(){
+        if(notes != null) return notes;
+        SplittableRandom random = new SplittableRandom(length);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if(i > 0) result.append(' ');
+            result.append(NOTES[random.nextInt(NOTES.length)])
+                  .append(3 + random.nextInt(4))
+                  .append(LENGTHS[random.nextInt(LENGTHS.length)]);
+        }
+        return result.toString();
+    }
+
+    public int length(){
+        return length;
+    }
+}
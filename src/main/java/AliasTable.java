@@ -0,0 +1,80 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Walker's alias table (Vose's construction) for sampling an index proportionally to its weight
+ * Building the table takes O(n), after which every sample takes O(1)
+ * All arrays are allocated once and reused when the table is rebuilt
+ */
+class AliasTable {
+    private final double[] probability;
+    private final int[] alias;
+    private final double[] scaled;
+    private final int[] small, large;
+
+    /**
+     * @param size number of indices the table samples from
+     */
+    AliasTable(int size) {
+        this.probability = new double[size];
+        this.alias = new int[size];
+        this.scaled = new double[size];
+        this.small = new int[size];
+        this.large = new int[size];
+    }
+
+    /**
+     * Rebuilds the table, index i is sampled with probability weights[i]/sum(weights)
+     * If all weights are 0 every index is equally likely
+     * @param weights non-negative weights, one per index
+     */
+    void build(int[] weights){
+        int size = probability.length;
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += weights[i];
+        }
+        if(sum == 0){
+            for (int i = 0; i < size; i++) {
+                probability[i] = 1;
+                alias[i] = i;
+            }
+            return;
+        }
+
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = (double) weights[i] * size / sum;
+            if(scaled[i] < 1) small[smallCount++] = i;
+            else large[largeCount++] = i;
+        }
+        //Pair every underfull column with an overfull one that tops it up
+        while(smallCount > 0 && largeCount > 0){
+            int less = small[--smallCount], more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if(scaled[more] < 1) small[smallCount++] = more;
+            else large[largeCount++] = more;
+        }
+        //Whatever is left is full up to floating point error
+        while(largeCount > 0){
+            int index = large[--largeCount];
+            probability[index] = 1;
+            alias[index] = index;
+        }
+        while(smallCount > 0){
+            int index = small[--smallCount];
+            probability[index] = 1;
+            alias[index] = index;
+        }
+    }
+
+    /**
+     * @param random source of randomness
+     * @return index sampled proportionally to its weight
+     */
+    int sample(RandomGenerator random){
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+}
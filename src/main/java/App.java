@@ -3,6 +3,8 @@ import enums.EndCondition;
 import enums.MutationMethod;
 import enums.SelectionMethod;
 
+import java.nio.file.Path;
+
 public class App {
 //    Mary Had a Little Lamb
 //    public static final String TARGET_MELODY_STRING = "E D C D E E Eh D D Dh E G Gh";
@@ -11,12 +13,22 @@ public class App {
     // Jingle Bells
 //    public static final String TARGET_MELODY_STRING = "E E Eh E E Eh E G C D Ew F F F F F E E E E E D D E Dh Gh";
 //    Ode to Joy
-    public static final String TARGET_MELODY_STRING = "E E F G G F E D C C D E E D Dh E E F G G F E D C C D E D C Ch D D E C D F E C D F E D C D Gh E E F G G F E D C C D E D C Ch";
+//    Any other target can be supplied without recompiling through -Dmelody.target="..."
+    public static final String TARGET_MELODY_STRING = System.getProperty("melody.target", "E E F G G F E D C C D E E D Dh E E F G G F E D C C D E D C Ch D D E C D F E C D F E D C D Gh E E F G G F E D C C D E D C Ch");
     public static final Melody TARGET_MELODY = MelodyUtil.stringToMelody(TARGET_MELODY_STRING);
-    public static final int MELODY_LENGTH = TARGET_MELODY_STRING.split(" ").length;
 
+    /**
+     * Evolves TARGET_MELODY, or every melody in a file if its path is given as first argument
+     * A single run writes its progress as MIDI files into the directory given by -Dmelody.midi=..., if set,
+     * and plays progress and result only with -Dmelody.playback=true, since playback blocks for as long as the melodies last
+     * A batch run writes the MIDI files of every melody into a directory of its own, melody-1, melody-2 and so on
+     * A distributed run is started with "coordinator <address> <workers>" followed by "worker <address>" in every worker process,
+     * where address is host:port, a port, or the path of a Unix domain socket
+     * @param args optional path to a file with one melody per line, or mode and address of a distributed run
+     */
     public static void main(String[] args) {
-        Genetics genetics =  new Genetics.Builder(20)
+        Genetics.Builder builder =  new Genetics.Builder(20)
+                .target(TARGET_MELODY)
                 .endCondition(EndCondition.EXACT_MATCH)
 //                .endCondition(EndCondition.MAX_GENERATIONS)
 //                .maxGenerations(100)
@@ -27,12 +39,50 @@ public class App {
                 .mutationMethod(MutationMethod.CHROMOSOME)
                 .selectionMethod(SelectionMethod.TOURNAMENT)
                 .tournamentK(10)
-                .elitismCount(2)
-                .build();
+                .elitismCount(2);
+
+        if(args.length == 3 && args[0].equals("coordinator")){
+            IslandCoordinator coordinator = new IslandCoordinator.Builder()
+                    .address(IslandProtocol.parseAddress(args[1]))
+                    .workers(Integer.parseInt(args[2]))
+                    .build();
+            coordinator.run();
+            coordinator.statistics();
+            return;
+        }
+        if(args.length == 2 && args[0].equals("worker")){
+            new IslandWorker(builder.parallelism(Runtime.getRuntime().availableProcessors()).build(), IslandProtocol.parseAddress(args[1])).run();
+            return;
+        }
+
+        if(args.length > 0){
+            //Whole batch shares the cores, each run on a single thread
+            BatchRunner batchRunner = new BatchRunner(builder.parallelism(1), Runtime.getRuntime().availableProcessors());
+            String midiDirectory = System.getProperty("melody.midi");
+            if(midiDirectory != null){
+                batchRunner.sink(index -> new MidiFileSink(Path.of(midiDirectory, "melody-" + (index + 1))))
+                           .sink(index -> new MultiTrackMidiSink(Path.of(midiDirectory, "melody-" + (index + 1), "run.mid")));
+            }
+            for (BatchRunner.Result result : batchRunner.run(Path.of(args[0]))) {
+                System.out.printf("Melody %d: fitness %d/%d after %d generations (%dms)%n", result.index() + 1,
+                        result.best().fitness(), result.maxFitness(), result.generations(), result.elapsedTime() / 1000000);
+            }
+            return;
+        }
+
+        builder.parallelism(Runtime.getRuntime().availableProcessors());
+        String midiDirectory = System.getProperty("melody.midi");
+        if(midiDirectory != null){
+            builder.sink(new MidiFileSink(Path.of(midiDirectory)))
+                   .sink(new MultiTrackMidiSink(Path.of(midiDirectory, "run.mid")));
+        }
+        boolean playback = Boolean.getBoolean("melody.playback");
+        if(playback) builder.sink(new PlaybackSink());
+        Genetics genetics = builder.build();
 
         genetics.run();
         genetics.statistics();
 
-        genetics.playResult();
+        if(playback) genetics.playResult();
     }
 }
\ No newline at end of file
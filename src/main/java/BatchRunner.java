@@ -0,0 +1,115 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * Runs the genetic algorithm for many target melodies concurrently on a bounded number of threads
+ * Every run is built from the same Genetics.Builder, only the target differs, and parallelism of 1 usually works best since runs already use all threads
+ * Listeners and sinks are finished with their run, so every run gets its own, created from factories given the target's index
+ */
+public class BatchRunner {
+    /**
+     * Outcome of a single run
+     * @param index position of target in the batch
+     * @param target melody the run evolved towards
+     * @param best fittest melody found
+     * @param maxFitness fitness of an exact match under the run's fitness function
+     * @param generations number of generations
+     * @param elapsedTime execution time in nanoseconds
+     */
+    public record Result(int index, Melody target, Melody best, int maxFitness, int generations, long elapsedTime) {
+    }
+
+    private final Genetics.Builder builder;
+    private final int threads;
+    private final List<IntFunction<? extends GenerationListener>> listeners = new ArrayList<>();
+    private final List<IntFunction<? extends MelodySink>> sinks = new ArrayList<>();
+
+    /**
+     * @param builder configured builder without listeners, sinks or checkpoint, target is set for every run
+     * @param threads maximum number of runs executing at the same time
+     */
+    public BatchRunner(Genetics.Builder builder, int threads) {
+        if(threads < 1)
+            throw new IllegalArgumentException("Number of threads must be positive");
+        if(builder.hasOutputs())
+            throw new IllegalArgumentException("Builder must not have listeners, sinks or a checkpoint, runs would share them; add listeners and sinks through listener() and sink()");
+        this.builder = builder;
+        this.threads = threads;
+    }
+
+    /**
+     * Adds a listener to every run, e.g. a MetricsWriter writing to a file of its own
+     * @param listener creates the listener of a run from the index of its target, called on the thread starting the run
+     */
+    public BatchRunner listener(IntFunction<? extends GenerationListener> listener){
+        this.listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Adds a sink to every run, e.g. a MidiFileSink writing into a directory of its own
+     * @param sink creates the sink of a run from the index of its target, called on the thread starting the run
+     */
+    public BatchRunner sink(IntFunction<? extends MelodySink> sink){
+        this.sinks.add(sink);
+        return this;
+    }
+
+    /**
+     * Runs the genetic algorithm for every melody in a file
+     * @param path file with one melody in English notation per line, blank lines and lines starting with # are skipped
+     * @return results in order of melodies in file
+     */
+    public List<Result> run(Path path){
+        return run(MelodyParser.parseFile(path));
+    }
+
+    /**
+     * Runs the genetic algorithm for every target
+     * @param targets melodies to evolve towards
+     * @return results in order of targets
+     */
+    public List<Result> run(List<Melody> targets){
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < targets.size(); i++) {
+                int index = i;
+                Melody target = targets.get(i);
+                futures.add(executor.submit(() -> {
+                    //Outputs are only created once their run starts, so a large batch does not hold a file open per target
+                    List<GenerationListener> runListeners = listeners.stream().<GenerationListener>map(listener -> listener.apply(index)).toList();
+                    List<MelodySink> runSinks = sinks.stream().<MelodySink>map(sink -> sink.apply(index)).toList();
+                    Genetics genetics;
+                    //Builder is not thread safe
+                    synchronized(builder){
+                        try {
+                            genetics = builder.target(target).build(runListeners, runSinks);
+                        } catch (RuntimeException e) {
+                            runListeners.forEach(GenerationListener::onFinish);
+                            runSinks.forEach(MelodySink::close);
+                            throw e;
+                        }
+                    }
+                    genetics.run();
+                    return new Result(index, genetics.getTarget(), genetics.getBest(), genetics.getFitnessFunction().maxFitness(), genetics.getGeneration(), genetics.getElapsedTime());
+                }));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch run was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch run failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
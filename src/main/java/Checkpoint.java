@@ -0,0 +1,412 @@
+import enums.AdaptationMethod;
+import enums.CrossoverMethod;
+import enums.DiversityMeasure;
+import enums.DuplicatePolicy;
+import enums.EndCondition;
+import enums.FitnessMethod;
+import enums.MutationMethod;
+import enums.PopulationStorage;
+import enums.RandomSource;
+import enums.ReplacementMethod;
+import enums.SelectionMethod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a Genetics run: builder parameters, generation counter, target and packed genes of current population
+ * Random streams are derived from seed and generation alone, so seed and generation fully restore the random state
+ * Fitness is not stored, it is recomputed from genes on resume
+ *
+ * Layout, big endian: magic, format version, fields and a CRC32 of everything before it
+ * Every field is a short tag, an int length and its value, in any order
+ * Readers skip fields with tags they do not know and keep the Genetics.Builder default of fields that are missing,
+ * so fields are added with a new tag and no new format version, and checkpoints of older builds stay readable
+ * Tags are never reused or renumbered
+ *
+ * Genes are stored as several GENES fields of whole melodies, each the index of its first melody, the melody length and genes
+ * Files are checksum and read through a buffer of about CHUNK_BYTES, so neither needs memory in proportion to the population:
+ * read() parses everything but genes, readGenes() later streams them straight into the gene store of the resumed population
+ */
+class Checkpoint {
+    private static final int MAGIC = 0x4D454C4F;
+    /** Only changes if fields can no longer be read the same way, not when fields are added */
+    private static final int VERSION = 8;
+    /** Size of the file buffer and of GENES fields, unless a single melody is larger */
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private static final short POPULATION_SIZE = 1, MAX_GENERATIONS = 2, TOURNAMENT_K = 3, FITNESS_METHOD = 4,
+            END_CONDITION = 5, CROSSOVER_METHOD = 6, MUTATION_LIKELIHOOD = 7, MUTATION_METHOD = 8, SELECTION_METHOD = 9,
+            CLOSE_ENOUGH_PERCENTAGE = 10, STAGNATION_GENERATIONS = 11, TIME_BUDGET = 12, ADAPTATION_METHOD = 13,
+            DIVERSITY_MEASURE = 14, DIVERSITY_THRESHOLD = 15, RESTART_FRACTION = 16, DUPLICATE_POLICY = 17, DUPLICATES = 18,
+            CURRENT_MUTATION_LIKELIHOOD = 19, BEST_EVER_FITNESS = 20, BEST_EVER_GENERATION = 21, RESTARTS = 22,
+            ELITISM_COUNT = 23, REPLACEMENT_METHOD = 24, OFFSPRING_COUNT = 25, PARALLELISM = 26, SEED = 27,
+            RANDOM_SOURCE = 28, TIME_OPERATORS = 29, FITNESS_CACHE_SIZE = 30, POPULATION_STORAGE = 31,
+            STORAGE_DIRECTORY = 32, GENERATION = 33, ELAPSED_TIME = 34, INTERVAL_MILLIS = 35, TARGET = 36, GENES = 37;
+    /** Tag and length */
+    private static final int FIELD_HEADER_SIZE = 6;
+
+    int populationSize, maxGenerations, tournamentK;
+    /** null if the run used a custom fitness function */
+    FitnessMethod fitnessMethod;
+    EndCondition endCondition;
+    CrossoverMethod crossoverMethod;
+    double mutationLikelihood;
+    MutationMethod mutationMethod;
+    SelectionMethod selectionMethod;
+    double closeEnoughPercentage;
+    int stagnationGenerations = 1000;
+    long timeBudget;
+    AdaptationMethod adaptationMethod = AdaptationMethod.NONE;
+    DiversityMeasure diversityMeasure = DiversityMeasure.DISTINCT;
+    double diversityThreshold = 0.5, restartFraction = 0.5;
+    DuplicatePolicy duplicatePolicy = DuplicatePolicy.ALLOW;
+    long duplicates;
+    double currentMutationLikelihood;
+    int bestEverFitness, bestEverGeneration, restarts;
+    int elitismCount;
+    ReplacementMethod replacementMethod = ReplacementMethod.GENERATIONAL;
+    int offspringCount;
+    int parallelism = 1;
+    long seed;
+    RandomSource randomSource = RandomSource.SPLITTABLE;
+    boolean timeOperators;
+    int fitnessCacheSize;
+    PopulationStorage populationStorage = PopulationStorage.HEAP;
+    /** null for java.io.tmpdir */
+    Path storageDirectory;
+    int generation;
+    /** Elapsed time, like timeBudget, in nanoseconds */
+    long elapsedTime;
+    long intervalMillis;
+    short[] target;
+    /** Genes of current population, populationSize melodies of length notes, only set for writing */
+    GeneStore genes;
+    int length;
+
+    /** File this snapshot was read from and the CRC32 it had, checked again by readGenes */
+    private Path source;
+    private int crc;
+
+    /** Reused between writes, grown if a single melody does not fit */
+    private ByteBuffer buffer;
+    private FileChannel channel;
+    private CRC32 checksum;
+
+    /**
+     * Writes the snapshot to a temporary file next to path, then moves it over path
+     * so a crash while writing never destroys the previous checkpoint
+     * @param path checkpoint file
+     */
+    void write(Path path) throws IOException {
+        if(buffer == null)
+            buffer = ByteBuffer.allocate(CHUNK_BYTES);
+        buffer.clear();
+        checksum = new CRC32();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            this.channel = channel;
+            reserve(8);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            putInt(POPULATION_SIZE, populationSize);
+            putInt(MAX_GENERATIONS, maxGenerations);
+            putInt(TOURNAMENT_K, tournamentK);
+            putEnum(FITNESS_METHOD, fitnessMethod);
+            putEnum(END_CONDITION, endCondition);
+            putEnum(CROSSOVER_METHOD, crossoverMethod);
+            putDouble(MUTATION_LIKELIHOOD, mutationLikelihood);
+            putEnum(MUTATION_METHOD, mutationMethod);
+            putEnum(SELECTION_METHOD, selectionMethod);
+            putDouble(CLOSE_ENOUGH_PERCENTAGE, closeEnoughPercentage);
+            putInt(STAGNATION_GENERATIONS, stagnationGenerations);
+            putLong(TIME_BUDGET, timeBudget);
+            putEnum(ADAPTATION_METHOD, adaptationMethod);
+            putEnum(DIVERSITY_MEASURE, diversityMeasure);
+            putDouble(DIVERSITY_THRESHOLD, diversityThreshold);
+            putDouble(RESTART_FRACTION, restartFraction);
+            putEnum(DUPLICATE_POLICY, duplicatePolicy);
+            putLong(DUPLICATES, duplicates);
+            putDouble(CURRENT_MUTATION_LIKELIHOOD, currentMutationLikelihood);
+            putInt(BEST_EVER_FITNESS, bestEverFitness);
+            putInt(BEST_EVER_GENERATION, bestEverGeneration);
+            putInt(RESTARTS, restarts);
+            putInt(ELITISM_COUNT, elitismCount);
+            putEnum(REPLACEMENT_METHOD, replacementMethod);
+            putInt(OFFSPRING_COUNT, offspringCount);
+            putInt(PARALLELISM, parallelism);
+            putLong(SEED, seed);
+            putEnum(RANDOM_SOURCE, randomSource);
+            putInt(TIME_OPERATORS, timeOperators ? 1 : 0);
+            putInt(FITNESS_CACHE_SIZE, fitnessCacheSize);
+            putEnum(POPULATION_STORAGE, populationStorage);
+            byte[] directory = storageDirectory == null ? new byte[0] : storageDirectory.toString().getBytes(StandardCharsets.UTF_8);
+            reserve(FIELD_HEADER_SIZE + directory.length);
+            buffer.putShort(STORAGE_DIRECTORY).putInt(directory.length).put(directory);
+            putInt(GENERATION, generation);
+            putLong(ELAPSED_TIME, elapsedTime);
+            putLong(INTERVAL_MILLIS, intervalMillis);
+            reserve(FIELD_HEADER_SIZE + 2 * target.length);
+            buffer.putShort(TARGET).putInt(2 * target.length);
+            putShorts(target);
+
+            int melodies = Math.max(1, CHUNK_BYTES / (2 * length));
+            short[] melody = new short[length];
+            for (int first = 0; first < populationSize; first += melodies) {
+                int count = Math.min(melodies, populationSize - first);
+                reserve(FIELD_HEADER_SIZE + 8 + 2 * length);
+                buffer.putShort(GENES).putInt(8 + 2 * count * length).putInt(first).putInt(length);
+                for (int i = first; i < first + count; i++) {
+                    genes.read(i, melody, 0);
+                    reserve(2 * length);
+                    putShorts(melody);
+                }
+            }
+            flush();
+            reserve(4);
+            buffer.putInt((int) checksum.getValue());
+            flush();
+            channel.force(false);
+        } finally {
+            this.channel = null;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param path checkpoint file
+     * @return snapshot stored in file, without genes, which readGenes streams into a population once it exists
+     * @throws IOException if file cannot be read, is not a checkpoint or is corrupted
+     */
+    static Checkpoint read(Path path) throws IOException {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.source = path;
+        checkpoint.crc = checkpoint.parse(path, null);
+        return checkpoint;
+    }
+
+    /**
+     * Reads the genes of the checkpointed population a second time from the file read() parsed
+     * @param destination gene store of populationSize melodies of length notes
+     * @throws IOException if file can no longer be read or has changed since read()
+     */
+    void readGenes(GeneStore destination) throws IOException {
+        if(new Checkpoint().parse(source, destination) != crc)
+            throw new IOException(source + " has changed since it was read");
+    }
+
+    /**
+     * Streams the file once, keeping its fields and handing its genes to destination
+     * @param destination receives genes, null to skip them
+     * @return CRC32 of file
+     */
+    private int parse(Path path, GeneStore destination) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocate(CHUNK_BYTES).limit(0);
+            checksum = new CRC32();
+            //Everything before the CRC itself
+            long end = channel.size() - 4;
+            if(end < 8 || !fill(8, end) || buffer.getInt() != MAGIC)
+                throw new IOException(path + " is not a checkpoint file");
+            int version = buffer.getInt();
+            if(version != VERSION)
+                throw new IOException("Unsupported checkpoint version " + version);
+
+            boolean seeded = false;
+            int melodies = 0;
+            short[] melody = null;
+            long position = 8;
+            while(position < end){
+                if(!fill(FIELD_HEADER_SIZE, end))
+                    throw new IOException(path + " is corrupted");
+                short tag = buffer.getShort();
+                int size = buffer.getInt();
+                position += FIELD_HEADER_SIZE;
+                if(size < 0 || size > end - position)
+                    throw new IOException(path + " is corrupted");
+                position += size;
+                if(tag == GENES){
+                    fill(8, end);
+                    int first = buffer.getInt();
+                    length = buffer.getInt();
+                    //Chunks follow each other in melody order
+                    if(size < 8 || first != melodies || length <= 0 || (size - 8) % (2 * length) != 0)
+                        throw new IOException(path + " is corrupted");
+                    if(melody == null || melody.length != length)
+                        melody = new short[length];
+                    for (int count = (size - 8) / (2 * length); count > 0; count--) {
+                        fill(2 * length, end);
+                        if(destination != null){
+                            buffer.asShortBuffer().get(melody);
+                            destination.write(melodies, melody, 0);
+                        }
+                        buffer.position(buffer.position() + 2 * length);
+                        melodies++;
+                    }
+                    continue;
+                }
+                if(tag > GENES || tag < 1){
+                    //Field of a newer build, skipped in pieces as it may be larger than the buffer
+                    for (int skipped = 0; skipped < size; ) {
+                        int piece = Math.min(size - skipped, CHUNK_BYTES);
+                        fill(piece, end);
+                        buffer.position(buffer.position() + piece);
+                        skipped += piece;
+                    }
+                    continue;
+                }
+                fill(size, end);
+                ByteBuffer value = buffer.slice(buffer.position(), size);
+                buffer.position(buffer.position() + size);
+                switch(tag){
+                    case POPULATION_SIZE -> populationSize = value.getInt();
+                    case MAX_GENERATIONS -> maxGenerations = value.getInt();
+                    case TOURNAMENT_K -> tournamentK = value.getInt();
+                    case FITNESS_METHOD -> fitnessMethod = getEnum(value, FitnessMethod.class);
+                    case END_CONDITION -> endCondition = getEnum(value, EndCondition.class);
+                    case CROSSOVER_METHOD -> crossoverMethod = getEnum(value, CrossoverMethod.class);
+                    case MUTATION_LIKELIHOOD -> mutationLikelihood = value.getDouble();
+                    case MUTATION_METHOD -> mutationMethod = getEnum(value, MutationMethod.class);
+                    case SELECTION_METHOD -> selectionMethod = getEnum(value, SelectionMethod.class);
+                    case CLOSE_ENOUGH_PERCENTAGE -> closeEnoughPercentage = value.getDouble();
+                    case STAGNATION_GENERATIONS -> stagnationGenerations = value.getInt();
+                    case TIME_BUDGET -> timeBudget = value.getLong();
+                    case ADAPTATION_METHOD -> adaptationMethod = getEnum(value, AdaptationMethod.class);
+                    case DIVERSITY_MEASURE -> diversityMeasure = getEnum(value, DiversityMeasure.class);
+                    case DIVERSITY_THRESHOLD -> diversityThreshold = value.getDouble();
+                    case RESTART_FRACTION -> restartFraction = value.getDouble();
+                    case DUPLICATE_POLICY -> duplicatePolicy = getEnum(value, DuplicatePolicy.class);
+                    case DUPLICATES -> duplicates = value.getLong();
+                    case CURRENT_MUTATION_LIKELIHOOD -> currentMutationLikelihood = value.getDouble();
+                    case BEST_EVER_FITNESS -> bestEverFitness = value.getInt();
+                    case BEST_EVER_GENERATION -> bestEverGeneration = value.getInt();
+                    case RESTARTS -> restarts = value.getInt();
+                    case ELITISM_COUNT -> elitismCount = value.getInt();
+                    case REPLACEMENT_METHOD -> replacementMethod = getEnum(value, ReplacementMethod.class);
+                    case OFFSPRING_COUNT -> offspringCount = value.getInt();
+                    case PARALLELISM -> parallelism = value.getInt();
+                    case SEED -> {
+                        seed = value.getLong();
+                        seeded = true;
+                    }
+                    case RANDOM_SOURCE -> randomSource = getEnum(value, RandomSource.class);
+                    case TIME_OPERATORS -> timeOperators = value.getInt() != 0;
+                    case FITNESS_CACHE_SIZE -> fitnessCacheSize = value.getInt();
+                    case POPULATION_STORAGE -> populationStorage = getEnum(value, PopulationStorage.class);
+                    case STORAGE_DIRECTORY -> storageDirectory = size == 0 ? null : Path.of(StandardCharsets.UTF_8.decode(value).toString());
+                    case GENERATION -> generation = value.getInt();
+                    case ELAPSED_TIME -> elapsedTime = value.getLong();
+                    case INTERVAL_MILLIS -> intervalMillis = value.getLong();
+                    case TARGET -> target = getShorts(value, size / 2);
+                }
+            }
+            int crc = (int) checksum.getValue();
+            if(!fill(4, end) || buffer.getInt() != crc)
+                throw new IOException(path + " is corrupted");
+            if(!seeded || target == null || melodies != populationSize || populationSize <= 0 || length != target.length)
+                throw new IOException(path + " is corrupted");
+            return crc;
+        } catch (RuntimeException e) {
+            //Buffer underflow, a melody outside of destination or an unknown enum constant
+            throw new IOException(path + " is corrupted", e);
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Reads from channel until at least count bytes remain in buffer, adding bytes before end to the CRC
+     * @param count bytes needed, the buffer grows if they do not fit
+     * @param end file position the CRC stops at
+     * @return false if the file ends first
+     */
+    private boolean fill(int count, long end) throws IOException {
+        if(buffer.remaining() >= count) return true;
+        if(buffer.capacity() < count){
+            buffer = ByteBuffer.allocate(count).put(buffer).flip();
+        }
+        buffer.compact();
+        while(buffer.position() < count){
+            long position = channel.position();
+            int start = buffer.position();
+            if(channel.read(buffer) < 0){
+                buffer.flip();
+                return false;
+            }
+            int checked = (int) Math.max(0, Math.min(buffer.position() - start, end - position));
+            checksum.update(buffer.array(), start, checked);
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * Makes room for count bytes, writing buffered bytes to the file and growing the buffer if they do not fit
+     */
+    private void reserve(int count) throws IOException {
+        if(buffer.remaining() >= count) return;
+        flush();
+        if(buffer.capacity() < count)
+            buffer = ByteBuffer.allocate(count);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putInt(short tag, int value) throws IOException {
+        reserve(FIELD_HEADER_SIZE + 4);
+        buffer.putShort(tag).putInt(4).putInt(value);
+    }
+
+    private void putLong(short tag, long value) throws IOException {
+        reserve(FIELD_HEADER_SIZE + 8);
+        buffer.putShort(tag).putInt(8).putLong(value);
+    }
+
+    private void putDouble(short tag, double value) throws IOException {
+        reserve(FIELD_HEADER_SIZE + 8);
+        buffer.putShort(tag).putInt(8).putDouble(value);
+    }
+
+    /**
+     * Enums are stored by name rather than ordinal so adding constants keeps old checkpoints readable, null as an empty name
+     */
+    private void putEnum(short tag, Enum<?> value) throws IOException {
+        byte[] name = value == null ? new byte[0] : value.name().getBytes(StandardCharsets.US_ASCII);
+        reserve(FIELD_HEADER_SIZE + name.length);
+        buffer.putShort(tag).putInt(name.length).put(name);
+    }
+
+    /**
+     * @param values shorts to append, reserved beforehand
+     */
+    private void putShorts(short[] values){
+        buffer.asShortBuffer().put(values);
+        buffer.position(buffer.position() + 2 * values.length);
+    }
+
+    private static <E extends Enum<E>> E getEnum(ByteBuffer value, Class<E> type){
+        return value.hasRemaining() ? Enum.valueOf(type, StandardCharsets.US_ASCII.decode(value).toString()) : null;
+    }
+
+    private static short[] getShorts(ByteBuffer buffer, int count){
+        short[] values = new short[count];
+        buffer.asShortBuffer().get(values);
+        buffer.position(buffer.position() + 2 * count);
+        return values;
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/**
+ * Measures genetic diversity of a population from allele counts at every locus
+ * Mean pairwise Hamming distance follows from the counts as well, so no pair of melodies is ever compared
+ * Counts are kept between measurements: replacing a few melodies updates them through remove() and add() in O(length) each,
+ * only after most of the population changed are they recounted in a single pass over its genes
+ * A locus holds at most as many distinct alleles as there are melodies, so small populations count them in a small
+ * open addressed table per locus rather than one slot for every possible allele, keeping counts within a few times the size of the genes
+ * Arrays are allocated once and reused for every measurement
+ */
+class DiversityTracker {
+    /** Distinct valid notes, 128 pitches times 5 lengths, length codes stop at 4 so the low 10 bits of a gene are below this */
+    private static final int ALLELES = 128 * 5;
+    /** Bits of an allele, a hashed slot holds count << ALLELE_BITS | allele */
+    private static final int ALLELE_BITS = 10;
+    private static final int ALLELE_MASK = (1 << ALLELE_BITS) - 1;
+    /** c*log2(c) is kept in fixed point with this many fraction bits, so sums are exact in whatever order counts change */
+    private static final int FRACTION_BITS = 20;
+
+    private final int size, length;
+    /** Slots per locus, ALLELES if counts are indexed by allele, otherwise a power of two at most two thirds full */
+    private final int slots;
+    /** Whether slots hold count and allele found by linear probing rather than the count of the allele at that index */
+    private final boolean hashed;
+    /** Shift of a multiplicative hash of an allele down to its home slot */
+    private final int hashShift;
+    /** Slots of locus l start at index l*slots, a hashed slot is 0 while empty */
+    private final int[] counts;
+    /** c*log2(c) in fixed point for every count c, so entropy is updated with a lookup per gene */
+    private final long[] countLogCount;
+    /** Sums over all loci of c^2 and of c*log2(c) in fixed point */
+    private long squares, logSum;
+    /** Whether counts must be recounted before the next measurement */
+    private boolean stale = true;
+    /** Genes of a single melody, read at once rather than gene by gene */
+    private final short[] melody;
+    private final double maxEntropy;
+    private double entropy, hammingDistance;
+
+    /**
+     * @param size number of melodies of measured populations, at least 2
+     * @param length number of notes of every melody
+     */
+    DiversityTracker(int size, int length) {
+        this.size = size;
+        this.length = length;
+        int alleles = Math.min(size, ALLELES);
+        int tableSlots = Integer.highestOneBit(alleles + alleles / 2 - 1) << 1;
+        this.hashed = tableSlots < ALLELES;
+        this.slots = hashed ? tableSlots : ALLELES;
+        this.hashShift = 32 - Integer.numberOfTrailingZeros(tableSlots);
+        this.counts = new int[length * slots];
+        this.countLogCount = new long[size + 1];
+        for (int c = 2; c <= size; c++) {
+            countLogCount[c] = Math.round(c * Math.log(c) / Math.log(2) * (1 << FRACTION_BITS));
+        }
+        this.melody = new short[length];
+        this.maxEntropy = Math.log(alleles) / Math.log(2);
+    }
+
+    /**
+     * Makes the next measurement recount the whole population, needed whenever it changed other than through remove() and add()
+     */
+    void invalidate(){
+        stale = true;
+    }
+
+    /**
+     * Takes a melody out of the counts, called before it is overwritten
+     * @param population measured population
+     * @param index melody index
+     */
+    void remove(Population population, int index){
+        if(stale) return;
+        population.genes.read(index, melody, 0);
+        for (int locus = 0; locus < length; locus++) {
+            int count = decrement(locus, melody[locus] & ALLELE_MASK);
+            squares -= 2L * count + 1;
+            logSum -= countLogCount[count + 1] - countLogCount[count];
+        }
+    }
+
+    /**
+     * Adds a melody to the counts, called after it was written
+     * @param population measured population
+     * @param index melody index
+     */
+    void add(Population population, int index){
+        if(stale) return;
+        count(population, index);
+    }
+
+    private void count(Population population, int index){
+        population.genes.read(index, melody, 0);
+        for (int locus = 0; locus < length; locus++) {
+            int count = increment(locus, melody[locus] & ALLELE_MASK);
+            squares += 2L * count + 1;
+            logSum += countLogCount[count + 1] - countLogCount[count];
+        }
+    }
+
+    /**
+     * @return home slot of an allele in a hashed locus
+     */
+    private int home(int allele){
+        return allele * 0x9E3779B1 >>> hashShift;
+    }
+
+    /**
+     * @return count of allele at locus before it was incremented
+     */
+    private int increment(int locus, int allele){
+        if(!hashed) return counts[locus * ALLELES + allele]++;
+        int base = locus * slots, mask = slots - 1;
+        for (int slot = home(allele); ; slot = slot + 1 & mask) {
+            int entry = counts[base + slot];
+            if(entry == 0){
+                counts[base + slot] = 1 << ALLELE_BITS | allele;
+                return 0;
+            }
+            if((entry & ALLELE_MASK) == allele){
+                counts[base + slot] = entry + (1 << ALLELE_BITS);
+                return entry >>> ALLELE_BITS;
+            }
+        }
+    }
+
+    /**
+     * @return count of allele at locus after it was decremented, the allele must be counted at that locus
+     */
+    private int decrement(int locus, int allele){
+        if(!hashed) return --counts[locus * ALLELES + allele];
+        int base = locus * slots, mask = slots - 1;
+        int slot = home(allele);
+        while((counts[base + slot] & ALLELE_MASK) != allele) {
+            slot = slot + 1 & mask;
+        }
+        int entry = counts[base + slot] - (1 << ALLELE_BITS);
+        if(entry >>> ALLELE_BITS != 0){
+            counts[base + slot] = entry;
+            return entry >>> ALLELE_BITS;
+        }
+        //Emptied slot is filled by shifting back later entries of its run that may live there, so no deleted markers pile up
+        for (int next = slot + 1 & mask; counts[base + next] != 0; next = next + 1 & mask) {
+            int moved = counts[base + next];
+            if((next - home(moved & ALLELE_MASK) & mask) >= (next - slot & mask)){
+                counts[base + slot] = moved;
+                slot = next;
+            }
+        }
+        counts[base + slot] = 0;
+        return 0;
+    }
+
+    /**
+     * Measures diversity of a population, results are available through entropy() and hammingDistance()
+     * @param population population of the size and melody length this tracker was created for
+     */
+    void measure(Population population){
+        if(stale){
+            Arrays.fill(counts, 0);
+            squares = 0;
+            logSum = 0;
+            for (int i = 0; i < size; i++) {
+                count(population, i);
+            }
+            stale = false;
+        }
+        //Per locus entropy is log2(n) - sum(c*log2(c))/n, differing pairs are (n^2 - sum(c^2))/2 of n(n-1)/2
+        double meanEntropy = (countLogCount[size] - (double) logSum / length) / (1 << FRACTION_BITS) / size;
+        entropy = maxEntropy == 0 ? 0 : Math.max(0, meanEntropy / maxEntropy);
+        hammingDistance = ((double) size * size * length - squares) / ((double) size * (size - 1) * length);
+    }
+
+    /**
+     * @return mean Shannon entropy of alleles at a locus of the measured population, scaled to range [0,1]
+     * where 1 means every locus holds as many different notes as the population size allows
+     */
+    double entropy(){
+        return entropy;
+    }
+
+    /**
+     * @return share of loci at which two distinct melodies of the measured population differ, averaged over all pairs, in range [0,1]
+     */
+    double hammingDistance(){
+        return hammingDistance;
+    }
+}
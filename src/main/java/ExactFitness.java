@@ -0,0 +1,51 @@
+import java.nio.ByteBuffer;
+
+/**
+ * One point for every note whose pitch equals the target's and one for every note whose length does
+ * Ranges are scored by the fitness kernel, vectorized when the Vector API is available
+ */
+class ExactFitness implements FitnessFunction {
+    private final short[] target;
+    /** Target in the layout the kernel evaluates batches against */
+    private final short[] batchTarget;
+
+    ExactFitness(Melody target) {
+        this.target = target.getGenes().clone();
+        this.batchTarget = FitnessKernel.INSTANCE.batchTarget(this.target);
+    }
+
+    @Override
+    public int length() {
+        return target.length;
+    }
+
+    @Override
+    public int maxFitness() {
+        return 2 * target.length;
+    }
+
+    @Override
+    public int noteFitness(short previous, short note, int index) {
+        return Melody.geneFitness(note, target[index]);
+    }
+
+    @Override
+    public int rangeFitness(short[] genes, int offset, int from, int to) {
+        return FitnessKernel.INSTANCE.rangeFitness(genes, offset, target, from, to);
+    }
+
+    @Override
+    public int rangeFitness(ByteBuffer genes, int offset, int from, int to) {
+        return FitnessKernel.INSTANCE.rangeFitness(genes, offset, target, from, to);
+    }
+
+    @Override
+    public void evaluate(short[] genes, int[] fitness, int from, int to) {
+        FitnessKernel.INSTANCE.evaluate(genes, target, batchTarget, fitness, from, to);
+    }
+
+    @Override
+    public void evaluate(ByteBuffer genes, int offset, int[] fitness, int from, int to) {
+        FitnessKernel.INSTANCE.evaluate(genes, offset, target, batchTarget, fitness, from, to);
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded map from hash of a melody's genes to its fitness, shared by all workers of a run without locking
+ * Entries live in sets of WAYS slots picked by the hash, a full set evicts with CLOCK: the hand of the set skips
+ * and clears slots that were hit since it last passed them and replaces the first one that was not
+ *
+ * Every slot stores the fitness and the key xor'ed with it, a lookup only hits if the two agree,
+ * so a slot torn by a concurrent write reads as a miss rather than a wrong fitness
+ * Melodies are identified by 64-bit hash alone, two distinct melodies share a fitness only on a hash collision
+ */
+class FitnessCache {
+    /** Slots per set */
+    private static final int WAYS = 4;
+    /** Marks a slot as filled, so an empty slot never matches key 0 */
+    private static final long VALID = 1L << 32;
+
+    /** Slot i holds key ^ data at 2i and data at 2i+1, data being VALID | fitness */
+    private final long[] slots;
+    private final boolean[] referenced;
+    private final byte[] hands;
+    private final int setMask;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+    /**
+     * @param capacity maximum number of cached melodies, rounded up to a power of two of at least WAYS
+     */
+    FitnessCache(int capacity) {
+        int size = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+        this.slots = new long[2 * size];
+        this.referenced = new boolean[size];
+        this.hands = new byte[size / WAYS];
+        this.setMask = size / WAYS - 1;
+    }
+
+    /**
+     * @param key hash of genes
+     * @return cached fitness, -1 if melody is not cached
+     */
+    int get(long key){
+        int first = ((int) key & setMask) * WAYS;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            long data = slots[2 * slot + 1];
+            if(data != 0 && (slots[2 * slot] ^ data) == key){
+                if(!referenced[slot]) referenced[slot] = true;
+                hits.increment();
+                return (int) data;
+            }
+        }
+        misses.increment();
+        return -1;
+    }
+
+    /**
+     * Caches fitness of a melody, evicting an entry of its set if the set is full
+     * @param key hash of genes
+     * @param fitness non-negative fitness of melody
+     */
+    void put(long key, int fitness){
+        int set = (int) key & setMask, first = set * WAYS;
+        int victim = -1;
+        for (int slot = first; slot < first + WAYS && victim < 0; slot++) {
+            long data = slots[2 * slot + 1];
+            if(data == 0 || (slots[2 * slot] ^ data) == key) victim = slot;
+        }
+        if(victim < 0){
+            //Second chance: one full turn clears every bit, bounded since concurrent hits may set them again
+            int hand = hands[set];
+            for (int i = 0; i < WAYS && referenced[first + hand]; i++) {
+                referenced[first + hand] = false;
+                hand = (hand + 1) & (WAYS - 1);
+            }
+            victim = first + hand;
+            hands[set] = (byte) ((hand + 1) & (WAYS - 1));
+        }
+        long data = VALID | fitness;
+        slots[2 * victim] = key ^ data;
+        slots[2 * victim + 1] = data;
+        referenced[victim] = false;
+    }
+
+    /**
+     * @return number of lookups that found a cached fitness
+     */
+    long hits(){
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that did not find a cached fitness
+     */
+    long misses(){
+        return misses.sum();
+    }
+}
@@ -0,0 +1,112 @@
+import enums.FitnessMethod;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scores melodies against a single target melody, whose representation is precomputed when the function is created
+ * Fitness of a melody is the sum of contributions of its notes, the contribution of a note depending on the note itself,
+ * its position and, for functions that compare intervals, the note before it
+ * This lets the engine update fitness after crossover and mutation by rescoring only the notes that changed
+ */
+public interface FitnessFunction {
+    /**
+     * @param method built-in fitness function
+     * @param target melody to score against
+     * @return fitness function of given method for target
+     */
+    static FitnessFunction of(FitnessMethod method, Melody target){
+        return switch(method){
+            case EXACT -> new ExactFitness(target);
+            case PITCH_DISTANCE -> new PitchDistanceFitness(target);
+            case INTERVAL -> new IntervalFitness(target);
+            case RHYTHM_WEIGHTED -> new RhythmWeightedFitness(target);
+        };
+    }
+
+    /**
+     * @return number of notes of target, every scored melody must have the same length
+     */
+    int length();
+
+    /**
+     * @return fitness of a melody equal to target, no melody scores higher
+     */
+    int maxFitness();
+
+    /**
+     * Contribution of a single note, must not be negative
+     * @param previous note before it, 0 for the first note
+     * @param note packed note
+     * @param index position of note in melody
+     * @return fitness contributed by note
+     */
+    int noteFitness(short previous, short note, int index);
+
+    /**
+     * @return whether noteFitness depends on the previous note, so changing a note also changes the contribution of the next one
+     */
+    default boolean dependsOnPrevious(){
+        return false;
+    }
+
+    /**
+     * Fitness contributed by notes in range [from, to)
+     * @param genes packed notes
+     * @param offset position of the melody's first note in genes
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return sum of contributions of notes in range
+     */
+    default int rangeFitness(short[] genes, int offset, int from, int to){
+        int fitness = 0;
+        for (int i = from; i < to; i++) {
+            fitness += noteFitness(i > 0 ? genes[offset + i - 1] : 0, genes[offset + i], i);
+        }
+        return fitness;
+    }
+
+    /**
+     * Fitness contributed by notes in range [from, to) of a melody stored outside of the heap
+     * @param genes packed notes in native byte order
+     * @param offset position of the melody's first note in genes, counted in notes
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return sum of contributions of notes in range
+     */
+    default int rangeFitness(ByteBuffer genes, int offset, int from, int to){
+        int fitness = 0;
+        for (int i = from; i < to; i++) {
+            fitness += noteFitness(i > 0 ? genes.getShort(2 * (offset + i - 1)) : 0, genes.getShort(2 * (offset + i)), i);
+        }
+        return fitness;
+    }
+
+    /**
+     * Evaluates melodies [from, to) of a flat gene array in one pass
+     * @param genes packed notes, melody i occupying [i*length(), (i+1)*length())
+     * @param fitness receives fitness of melody i at index i
+     * @param from first melody (inclusive)
+     * @param to last melody (exclusive)
+     */
+    default void evaluate(short[] genes, int[] fitness, int from, int to){
+        int length = length();
+        for (int i = from; i < to; i++) {
+            fitness[i] = rangeFitness(genes, i * length, 0, length);
+        }
+    }
+
+    /**
+     * Evaluates melodies [from, to) stored one after another outside of the heap in one pass
+     * @param genes packed notes in native byte order
+     * @param offset position of the first note of melody from in genes, counted in notes
+     * @param fitness receives fitness of melody i at index i
+     * @param from first melody (inclusive)
+     * @param to last melody (exclusive)
+     */
+    default void evaluate(ByteBuffer genes, int offset, int[] fitness, int from, int to){
+        int length = length();
+        for (int i = from; i < to; i++) {
+            fitness[i] = rangeFitness(genes, offset + (i - from) * length, 0, length);
+        }
+    }
+}
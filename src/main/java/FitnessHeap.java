@@ -0,0 +1,88 @@
+/**
+ * Binary min-heap of melody indices keyed by their fitness, so the least fit melody is found in O(1)
+ * and replaced in O(log n) without sorting the population
+ * Ties are broken by lower index, so the minimum does not depend on the order operations were made in,
+ * and a heap rebuilt after resuming a run picks the same melodies as the original
+ * The heap reads fitness from the array it was built on, so after the fitness of its root changes
+ * the heap is restored with rootChanged()
+ */
+class FitnessHeap {
+    private final int[] heap;
+    private int[] fitness;
+    private int size;
+
+    /**
+     * @param capacity maximum number of indices
+     */
+    FitnessHeap(int capacity) {
+        this.heap = new int[capacity];
+    }
+
+    /**
+     * Rebuilds the heap from indices [0, count) in O(count)
+     * @param fitness fitness of every index, read by all later operations
+     * @param count number of indices
+     */
+    void build(int[] fitness, int count){
+        this.fitness = fitness;
+        this.size = count;
+        for (int i = 0; i < count; i++) {
+            heap[i] = i;
+        }
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * @return index with the lowest fitness
+     */
+    int min(){
+        return heap[0];
+    }
+
+    /**
+     * Replaces the index with the lowest fitness
+     * @param index index taking its place
+     */
+    void replaceMin(int index){
+        heap[0] = index;
+        siftDown(0);
+    }
+
+    /**
+     * Restores heap order after fitness of the index returned by min() changed
+     */
+    void rootChanged(){
+        siftDown(0);
+    }
+
+    /**
+     * @param position position in range [0, size())
+     * @return index at position, in no particular order
+     */
+    int get(int position){
+        return heap[position];
+    }
+
+    int size(){
+        return size;
+    }
+
+    private void siftDown(int position){
+        int index = heap[position];
+        while(true){
+            int child = 2 * position + 1;
+            if(child >= size) break;
+            if(child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if(!less(heap[child], index)) break;
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = index;
+    }
+
+    private boolean less(int a, int b){
+        return fitness[a] < fitness[b] || fitness[a] == fitness[b] && a < b;
+    }
+}
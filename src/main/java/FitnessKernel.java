@@ -0,0 +1,90 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Counts matching pitches and lengths of packed notes against a target, the innermost loop of the whole engine
+ * The Vector API kernel is used when module jdk.incubator.vector is present (run with --add-modules jdk.incubator.vector),
+ * otherwise or with -Dmelody.vector=false the scalar kernel is used; both give identical results
+ */
+interface FitnessKernel {
+    /** Kernel used by the engine, chosen once when first needed */
+    FitnessKernel INSTANCE = load();
+
+    /**
+     * Fitness contributed by genes in range [from, to)
+     * @param genes packed notes
+     * @param offset position of the melody's first note in genes
+     * @param target packed notes of target melody
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return value in range [0, 2*(to-from)]
+     */
+    int rangeFitness(short[] genes, int offset, short[] target, int from, int to);
+
+    /**
+     * Fitness contributed by genes in range [from, to) of a melody stored outside of the heap
+     * @param genes packed notes in native byte order
+     * @param offset position of the melody's first note in genes, counted in notes
+     * @param target packed notes of target melody
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return value in range [0, 2*(to-from)]
+     */
+    int rangeFitness(ByteBuffer genes, int offset, short[] target, int from, int to);
+
+    /**
+     * Target laid out the way evaluate reads it, built once per target so evaluating a batch allocates nothing
+     * @param target packed notes of target melody
+     * @return target itself unless the kernel reads it padded
+     */
+    default short[] batchTarget(short[] target){
+        return target;
+    }
+
+    /**
+     * Evaluates melodies [from, to) of a flat gene array in one pass
+     * @param genes packed notes, melody i occupying [i*target.length, (i+1)*target.length)
+     * @param target packed notes of target melody
+     * @param batchTarget batchTarget(target)
+     * @param fitness receives fitness of melody i at index i
+     * @param from first melody (inclusive)
+     * @param to last melody (exclusive)
+     */
+    default void evaluate(short[] genes, short[] target, short[] batchTarget, int[] fitness, int from, int to){
+        int length = target.length;
+        for (int i = from; i < to; i++) {
+            fitness[i] = rangeFitness(genes, i * length, target, 0, length);
+        }
+    }
+
+    /**
+     * Evaluates melodies [from, to) stored one after another outside of the heap in one pass
+     * @param genes packed notes in native byte order
+     * @param offset position of the first note of melody from in genes, counted in notes
+     * @param target packed notes of target melody
+     * @param batchTarget batchTarget(target)
+     * @param fitness receives fitness of melody i at index i
+     * @param from first melody (inclusive)
+     * @param to last melody (exclusive)
+     */
+    default void evaluate(ByteBuffer genes, int offset, short[] target, short[] batchTarget, int[] fitness, int from, int to){
+        int length = target.length;
+        for (int i = from; i < to; i++) {
+            fitness[i] = rangeFitness(genes, offset + (i - from) * length, target, 0, length);
+        }
+    }
+
+    /**
+     * The vector kernel is only referenced by name, so this interface loads without the incubator module
+     */
+    private static FitnessKernel load(){
+        if(Boolean.parseBoolean(System.getProperty("melody.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+            try {
+                return (FitnessKernel) Class.forName("VectorFitnessKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //Fall back to scalar kernel
+            }
+        }
+        return new ScalarFitnessKernel();
+    }
+}
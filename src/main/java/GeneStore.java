@@ -0,0 +1,69 @@
+import enums.PopulationStorage;
+
+import java.nio.file.Path;
+
+/**
+ * Packed notes of a fixed number of equally long melodies, addressed by melody index and locus inside the melody
+ * Melodies are written in place by several workers at once, each worker writing different melodies
+ */
+interface GeneStore {
+    /**
+     * @param storage where genes are kept
+     * @param size number of melodies
+     * @param length number of notes of every melody
+     * @param directory directory the backing file of MAPPED storage is created in
+     * @return empty store, every gene 0
+     */
+    static GeneStore of(PopulationStorage storage, int size, int length, Path directory){
+        return switch(storage){
+            case HEAP -> new HeapGeneStore(size, length);
+            case DIRECT -> new OffHeapGeneStore(size, length, null);
+            case MAPPED -> new OffHeapGeneStore(size, length, directory);
+        };
+    }
+
+    short get(int index, int locus);
+
+    void set(int index, int locus, short gene);
+
+    /**
+     * Copies genes of one melody into a melody of another (or the same) store
+     * @param index melody index in this store
+     * @param locus first locus copied
+     * @param destination store to copy into
+     * @param destinationIndex melody index in destination
+     * @param destinationLocus locus the first gene is copied to
+     * @param count number of genes
+     */
+    void copy(int index, int locus, GeneStore destination, int destinationIndex, int destinationLocus, int count);
+
+    /**
+     * @param index melody index
+     * @param genes receives all genes of the melody
+     * @param offset position in genes the first gene is written to
+     */
+    void read(int index, short[] genes, int offset);
+
+    /**
+     * @param index melody index
+     * @param genes holds all genes of the melody
+     * @param offset position of the first gene in genes
+     */
+    void write(int index, short[] genes, int offset);
+
+    /**
+     * @param function fitness function for melodies of this store's length
+     * @param index melody index
+     * @param from first locus (inclusive)
+     * @param to last locus (exclusive)
+     * @return fitness contributed by genes in range
+     */
+    int rangeFitness(FitnessFunction function, int index, int from, int to);
+
+    /**
+     * Evaluates melodies [from, to)
+     * @param function fitness function for melodies of this store's length
+     * @param fitness receives fitness of melody i at index i
+     */
+    void evaluate(FitnessFunction function, int[] fitness, int from, int to);
+}
@@ -0,0 +1,15 @@
+/**
+ * Receives statistics of every generation while a genetic algorithm is running
+ * Called on the thread running the algorithm between two generations, so implementations should return quickly
+ */
+public interface GenerationListener {
+    /**
+     * @param statistics statistics of the generation that was just created
+     */
+    void onGeneration(GenerationStatistics statistics);
+
+    /**
+     * Called once after the last generation of a run
+     */
+    default void onFinish(){}
+}
@@ -0,0 +1,24 @@
+/**
+ * Statistics of a single generation
+ * Operator times are summed over all workers and are 0 unless operator timing is enabled in Genetics.Builder
+ * With STEADY_STATE or MU_PLUS_LAMBDA replacement a generation is a step, statistics are published every populationSize / offspringCount steps
+ * and times, allocations and rate cover all steps since the previous statistics
+ * @param generation generation number
+ * @param bestFitness highest fitness in population
+ * @param meanFitness average fitness of population
+ * @param minFitness lowest fitness in population
+ * @param diversity share of distinct melodies in population, in range (0,1]
+ * @param entropy mean entropy of notes at a position, relative to the highest the population size allows, in range [0,1]
+ * @param hammingDistance share of positions at which two melodies differ, averaged over all pairs, in range [0,1]
+ * @param selectionTime nanoseconds spent selecting parents
+ * @param crossoverTime nanoseconds spent copying genes from parents into children
+ * @param mutationTime nanoseconds spent mutating children
+ * @param evaluationTime nanoseconds spent computing fitness of children
+ * @param allocatedBytes bytes allocated on all threads while creating the generation, -1 if not supported by the JVM
+ * @param generationsPerSecond rate at which generations were created since the previous statistics
+ */
+public record GenerationStatistics(int generation, int bestFitness, double meanFitness, int minFitness, double diversity,
+                                   double entropy, double hammingDistance,
+                                   long selectionTime, long crossoverTime, long mutationTime, long evaluationTime,
+                                   long allocatedBytes, double generationsPerSecond) {
+}
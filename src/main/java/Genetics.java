@@ -1,11 +1,28 @@
+import enums.AdaptationMethod;
 import enums.CrossoverMethod;
+import enums.DiversityMeasure;
+import enums.DuplicatePolicy;
 import enums.EndCondition;
+import enums.FitnessMethod;
 import enums.MutationMethod;
+import enums.PopulationStorage;
+import enums.RandomSource;
+import enums.ReplacementMethod;
 import enums.SelectionMethod;
 import org.jfugue.player.Player;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 public class Genetics {
     public static class Builder{
@@ -16,17 +33,170 @@ public class Genetics {
         private MutationMethod mutationMethod;
         private SelectionMethod selectionMethod;
         private double closeEnoughPercentage;
+        private int stagnationGenerations = 1000;
+        private Duration timeBudget;
+        private AdaptationMethod adaptationMethod = AdaptationMethod.NONE;
+        private DiversityMeasure diversityMeasure = DiversityMeasure.DISTINCT;
+        private double diversityThreshold = 0.5;
+        private double restartFraction = 0.5;
+        private DuplicatePolicy duplicatePolicy = DuplicatePolicy.ALLOW;
         private int elitismCount = 0;
+        private ReplacementMethod replacementMethod = ReplacementMethod.GENERATIONAL;
+        private int offspringCount = 0;
+        private int parallelism = 1;
+        private long seed = ThreadLocalRandom.current().nextLong();
+        private RandomSource randomSource = RandomSource.SPLITTABLE;
+        private boolean timeOperators = false;
+        private final List<GenerationListener> listeners = new ArrayList<>();
+        private final List<MelodySink> sinks = new ArrayList<>();
+        private int snapshotInterval = 1000;
+        private Melody target;
+        private FitnessMethod fitnessMethod = FitnessMethod.EXACT;
+        private Function<Melody, FitnessFunction> fitnessFunction = target -> FitnessFunction.of(FitnessMethod.EXACT, target);
+        private int fitnessCacheSize = 0;
+        private PopulationStorage populationStorage = PopulationStorage.HEAP;
+        private Path storageDirectory;
+        private Path checkpointPath;
+        private Duration checkpointInterval;
+        private Checkpoint resumeFrom;
 
         public Builder(int populationSize){
             this.populationSize = populationSize;
         }
 
+        /**
+         * Creates a builder with all parameters of a checkpointed run, the built Genetics object continues that run
+         * from the stored generation with the same random streams, so it ends exactly as the interrupted run would have
+         * The run keeps checkpointing to the same file, listeners, sinks and a custom fitness function are not stored and must be set again
+         * Genes are only read once the run starts, straight into its population storage, so path must not change before then
+         * @param path file written by a run with checkpoint set
+         * @return builder with parameters of the checkpointed run
+         */
+        public static Builder resume(Path path){
+            Checkpoint checkpoint;
+            try {
+                checkpoint = Checkpoint.read(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Builder builder = new Builder(checkpoint.populationSize);
+            builder.target = new Melody(checkpoint.target);
+            if(checkpoint.fitnessMethod != null) builder.fitnessMethod(checkpoint.fitnessMethod);
+            builder.maxGenerations = checkpoint.maxGenerations;
+            builder.tournamentK = checkpoint.tournamentK;
+            builder.endCondition = checkpoint.endCondition;
+            builder.crossoverMethod = checkpoint.crossoverMethod;
+            builder.mutationLikelihood = checkpoint.mutationLikelihood;
+            builder.mutationMethod = checkpoint.mutationMethod;
+            builder.selectionMethod = checkpoint.selectionMethod;
+            builder.closeEnoughPercentage = checkpoint.closeEnoughPercentage;
+            builder.stagnationGenerations = checkpoint.stagnationGenerations;
+            builder.timeBudget = checkpoint.timeBudget == 0 ? null : Duration.ofNanos(checkpoint.timeBudget);
+            builder.adaptationMethod = checkpoint.adaptationMethod;
+            builder.diversityMeasure = checkpoint.diversityMeasure;
+            builder.diversityThreshold = checkpoint.diversityThreshold;
+            builder.restartFraction = checkpoint.restartFraction;
+            builder.duplicatePolicy = checkpoint.duplicatePolicy;
+            builder.elitismCount = checkpoint.elitismCount;
+            builder.replacementMethod = checkpoint.replacementMethod;
+            builder.offspringCount = checkpoint.offspringCount;
+            builder.parallelism = checkpoint.parallelism;
+            builder.seed = checkpoint.seed;
+            builder.randomSource = checkpoint.randomSource;
+            builder.timeOperators = checkpoint.timeOperators;
+            builder.fitnessCacheSize = checkpoint.fitnessCacheSize;
+            builder.populationStorage = checkpoint.populationStorage;
+            builder.storageDirectory = checkpoint.storageDirectory;
+            builder.checkpointPath = path;
+            builder.checkpointInterval = Duration.ofMillis(checkpoint.intervalMillis);
+            builder.resumeFrom = checkpoint;
+            return builder;
+        }
+
+        /**
+         * Melody the population evolves towards, must be set
+         * The builder can be reused to build runs for several targets with otherwise equal parameters
+         * @param target melody of at least 4 notes
+         */
+        public Builder target(Melody target){
+            if(target.length() < 4)
+                throw new IllegalArgumentException("Target melody must have at least 4 notes");
+            this.target = target;
+            return this;
+        }
+
+        /**
+         * How melodies are scored against the target
+         * FitnessMethod.EXACT -> one point for every matching pitch and every matching length (default)
+         * FitnessMethod.PITCH_DISTANCE -> points for pitches and lengths close to the target's, graded by semitone and duration error
+         * FitnessMethod.INTERVAL -> like PITCH_DISTANCE, but comparing intervals between notes, so a transposed target scores nearly as high as the target
+         * FitnessMethod.RHYTHM_WEIGHTED -> exact matching where every note counts in proportion to its duration
+         * Graded methods give the population a direction to improve in and usually need far fewer generations than EXACT
+         * @param fitnessMethod
+         */
+        public Builder fitnessMethod(FitnessMethod fitnessMethod){
+            this.fitnessMethod = fitnessMethod;
+            this.fitnessFunction = target -> FitnessFunction.of(fitnessMethod, target);
+            return this;
+        }
+
+        /**
+         * Custom way of scoring melodies against the target, replacing fitnessMethod
+         * @param fitnessFunction creates the fitness function for a target, called once per built Genetics object
+         */
+        public Builder fitnessFunction(Function<Melody, FitnessFunction> fitnessFunction){
+            this.fitnessMethod = null;
+            this.fitnessFunction = fitnessFunction;
+            return this;
+        }
+
+        /**
+         * Number of melodies whose fitness is remembered by hash of their genes, so recreated melodies are not scored again
+         * Looking a melody up costs about as much as scoring it with FitnessMethod.EXACT, so the cache only pays off
+         * for expensive custom fitness functions or UNIFORM crossover, whose children are scored from scratch
+         * Melodies are told apart by a 64-bit hash alone, so a distinct melody whose hash collides with a cached one gets its fitness,
+         * which a run makes with probability of about lookups * fitnessCacheSize / 2^64; short of that it gives the same result with or without the cache
+         * Recreated melodies mostly come from the last few generations, so a few times populationSize is enough, an entry takes 17 bytes
+         * @param fitnessCacheSize Integer in range [0, 2^22], 0 disables the cache (default)
+         */
+        public Builder fitnessCacheSize(int fitnessCacheSize){
+            if(fitnessCacheSize < 0 || fitnessCacheSize > 1 << 22)
+                throw new IllegalArgumentException("Fitness cache size must be in range [0, 2^22]");
+            this.fitnessCacheSize = fitnessCacheSize;
+            return this;
+        }
+
+        /**
+         * Where genes of the population and of the children bred from it are kept, fitness always stays on the heap
+         * PopulationStorage.HEAP -> one array on the Java heap, fastest, up to 2^31 genes (default)
+         * PopulationStorage.DIRECT -> direct buffers outside of the heap, limited by -XX:MaxDirectMemorySize instead of -Xmx
+         * PopulationStorage.MAPPED -> buffers mapped from a temporary file in storageDirectory, paged by the operating system
+         * Genes outside of the heap are never scanned or copied by the garbage collector, so pauses stay short however large
+         * the population is, at the cost of somewhat slower access to single genes
+         * @param populationStorage
+         */
+        public Builder populationStorage(PopulationStorage populationStorage){
+            this.populationStorage = populationStorage;
+            return this;
+        }
+
+        /**
+         * Directory the temporary files of MAPPED population storage are created in, java.io.tmpdir by default
+         * The files are deleted as soon as they are mapped, but take up disk space until the run is garbage collected
+         * @param storageDirectory existing directory, preferably on a local disk rather than a RAM backed file system
+         */
+        public Builder storageDirectory(Path storageDirectory){
+            this.storageDirectory = storageDirectory;
+            return this;
+        }
+
         /**
          * Condition under which genetic algorithm ends
          * EndCondition.EXACT_MATCH -> don't stop until 100% match is found
          * EndCondition.MAX_GENERATIONS -> run for a number of generations set by maxGenerations parameter
          * EndCondition.CLOSE_ENOUGH -> run until fitness match equals percentage set by closeEnoughPercentage parameter
+         * EndCondition.STAGNATION -> run until 100% match is found or best fitness has not improved for stagnationGenerations generations
+         * EndCondition.TIME_BUDGET -> run until 100% match is found or timeBudget has passed
          * @param endCondition
          */
         public Builder endCondition(EndCondition endCondition){
@@ -36,6 +206,8 @@ public class Genetics {
 
         /**
          * Number of generations to run algorithm for. Only applicable when MAX_GENERATIONS is set as endCondition
+         * With STEADY_STATE or MU_PLUS_LAMBDA replacement a generation is populationSize / offspringCount steps,
+         * so the run breeds about as many children as a GENERATIONAL one, while getGeneration() counts steps
          * @param maxGenerations number of generations to run algorithm for
          */
         public Builder maxGenerations(int maxGenerations){
@@ -67,7 +239,14 @@ public class Genetics {
         }
 
         /**
-         * Defines whether mutation occurs once per chromosome (MutationMethod.CHROMOSOME) or can occur multiple times (MutationMethod.GENE)
+         * How children are mutated, mutationLikelihood being the likelihood per gene or per chromosome
+         * MutationMethod.CHROMOSOME -> a random gene of the chromosome is replaced with a random note, once per chromosome
+         * MutationMethod.GENE -> every gene is replaced with a random note independently
+         * MutationMethod.GEOMETRIC -> same as GENE, but drawing the distance to the next mutated gene instead of a number per gene
+         * MutationMethod.PITCH_STEP -> genes picked as in GEOMETRIC move to the next note of the target's key up or down,
+         *                              an octave, or to the next longer or shorter length, staying within the target's range
+         * MutationMethod.SWAP -> two random genes of the chromosome swap places, once per chromosome
+         * MutationMethod.INVERSION -> a random section of the chromosome is reversed, once per chromosome
          * @param mutationMethod
          */
         public Builder mutationMethod(MutationMethod mutationMethod){
@@ -110,6 +289,91 @@ public class Genetics {
             return this;
         }
 
+        /**
+         * Number of generations without improvement of best fitness after which a STAGNATION run ends,
+         * each populationSize / offspringCount steps with STEADY_STATE or MU_PLUS_LAMBDA replacement as for maxGenerations
+         * @param stagnationGenerations positive Integer, 1000 by default
+         */
+        public Builder stagnationGenerations(int stagnationGenerations){
+            if(stagnationGenerations < 1)
+                throw new IllegalArgumentException("Stagnation generations must be positive");
+            this.stagnationGenerations = stagnationGenerations;
+            return this;
+        }
+
+        /**
+         * Wall-clock time after which a TIME_BUDGET run ends, checked between generations
+         * @param timeBudget positive Duration
+         */
+        public Builder timeBudget(Duration timeBudget){
+            if(timeBudget.isNegative() || timeBudget.isZero())
+                throw new IllegalArgumentException("Time budget must be positive");
+            this.timeBudget = timeBudget;
+            return this;
+        }
+
+        /**
+         * What is done when diversity of population collapses below diversityThreshold
+         * AdaptationMethod.NONE -> nothing (default)
+         * AdaptationMethod.HYPERMUTATION -> mutation likelihood is doubled while diversity stays low, then decays back to mutationLikelihood
+         * AdaptationMethod.RESTART -> the least fit share of population set by restartFraction is replaced with random melodies
+         * @param adaptationMethod
+         */
+        public Builder adaptationMethod(AdaptationMethod adaptationMethod){
+            this.adaptationMethod = adaptationMethod;
+            return this;
+        }
+
+        /**
+         * How diversity of population is measured for adaptation, every measure is in range [0,1]
+         * DiversityMeasure.DISTINCT -> share of distinct melodies (default)
+         * DiversityMeasure.ENTROPY -> mean entropy of notes at a position, relative to the highest the population size allows
+         * DiversityMeasure.HAMMING -> share of positions at which two melodies differ, averaged over all pairs
+         * ENTROPY and HAMMING also notice a population of distinct melodies that agree on almost every note
+         * @param diversityMeasure
+         */
+        public Builder diversityMeasure(DiversityMeasure diversityMeasure){
+            this.diversityMeasure = diversityMeasure;
+            return this;
+        }
+
+        /**
+         * Diversity, as measured by diversityMeasure, below which diversity is considered collapsed
+         * @param diversityThreshold double in range [0,1], 0.5 by default
+         */
+        public Builder diversityThreshold(double diversityThreshold){
+            if(diversityThreshold < 0 || diversityThreshold > 1)
+                throw new IllegalArgumentException("Diversity threshold must be in range [0,1]");
+            this.diversityThreshold = diversityThreshold;
+            return this;
+        }
+
+        /**
+         * Share of population replaced on RESTART adaptation, elite chromosomes are never replaced
+         * @param restartFraction double in range [0,1], 0.5 by default
+         */
+        public Builder restartFraction(double restartFraction){
+            if(restartFraction < 0 || restartFraction > 1)
+                throw new IllegalArgumentException("Restart fraction must be in range [0,1]");
+            this.restartFraction = restartFraction;
+            return this;
+        }
+
+        /**
+         * What is done with a child that is identical to a melody already in the next generation
+         * DuplicatePolicy.ALLOW -> nothing (default)
+         * DuplicatePolicy.REJECT -> the child is bred again from newly selected parents
+         * DuplicatePolicy.REMUTATE -> a random note of the child is mutated
+         * Either is retried a few times, after which the duplicate is kept
+         * Duplicates are found by hash of genes once the generation is bred and replaced in order of index,
+         * so a run gives the same result regardless of parallelism
+         * @param duplicatePolicy
+         */
+        public Builder duplicatePolicy(DuplicatePolicy duplicatePolicy){
+            this.duplicatePolicy = duplicatePolicy;
+            return this;
+        }
+
         /**
          * Number of the best chromosomes to copy into new generation
          * @param elitismCount Integer in range [0, populationSize]
@@ -121,12 +385,170 @@ public class Genetics {
             return this;
         }
 
+        /**
+         * How children bred in a step enter the population
+         * ReplacementMethod.GENERATIONAL -> children replace the whole population except elitismCount elites (default)
+         * ReplacementMethod.STEADY_STATE -> every child replaces the least fit melody, a step breeds only a few children
+         * ReplacementMethod.MU_PLUS_LAMBDA -> the fittest populationSize of parents and children survive
+         * ReplacementMethod.MU_COMMA_LAMBDA -> the fittest populationSize - elitismCount children survive next to the elites
+         * All but GENERATIONAL find the least fit melodies with a heap instead of sorting, and only copy the children that survive
+         * STEADY_STATE and MU_PLUS_LAMBDA rebuild roulette and rank tables, adapt, publish statistics and checkpoint
+         * once every populationSize / offspringCount steps, when a generation's worth of children has been bred
+         * @param replacementMethod
+         */
+        public Builder replacementMethod(ReplacementMethod replacementMethod){
+            this.replacementMethod = replacementMethod;
+            return this;
+        }
+
+        /**
+         * Number of children bred in every step (lambda) when replacementMethod is not GENERATIONAL
+         * By default 2 for STEADY_STATE and populationSize for MU_PLUS_LAMBDA and MU_COMMA_LAMBDA,
+         * which needs at least populationSize - elitismCount
+         * Children are bred in chunks of 64, so fewer children per step gain nothing from parallelism
+         * @param offspringCount positive Integer
+         */
+        public Builder offspringCount(int offspringCount){
+            if(offspringCount < 1)
+                throw new IllegalArgumentException("Offspring count must be positive");
+            this.offspringCount = offspringCount;
+            return this;
+        }
+
+        /**
+         * Number of worker threads producing offspring, 1 runs the algorithm on the calling thread
+         * Offspring are produced in fixed size chunks, each with its own random stream split from the seed,
+         * so a run with a given seed gives the same result regardless of parallelism
+         * @param parallelism positive Integer, usually Runtime.getRuntime().availableProcessors()
+         */
+        public Builder parallelism(int parallelism){
+            if(parallelism < 1)
+                throw new IllegalArgumentException("Parallelism must be positive");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Seed from which all random streams of a run are derived, random if not set
+         * @param seed
+         */
+        public Builder seed(long seed){
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Generator used for the random stream of every chunk of offspring
+         * RandomSource.SPLITTABLE -> java.util.SplittableRandom (default)
+         * RandomSource.LXM -> L64X128MixRandom, a fast LXM generator with better statistical quality
+         * RandomSource.JDK -> java.util.Random, slower and synchronized
+         * RandomSource.THREAD_LOCAL -> ThreadLocalRandom of the executing thread, fastest but ignores seed so runs are not reproducible
+         * @param randomSource
+         */
+        public Builder randomSource(RandomSource randomSource){
+            this.randomSource = randomSource;
+            return this;
+        }
+
+        /**
+         * Measures time spent in selection, crossover, mutation and evaluation, reported by statistics() and listeners
+         * Off by default since it reads the clock several times per child
+         * @param timeOperators
+         */
+        public Builder timeOperators(boolean timeOperators){
+            this.timeOperators = timeOperators;
+            return this;
+        }
+
+        /**
+         * Adds a listener that receives statistics of every generation, e.g. a MetricsWriter
+         * Statistics are only collected if at least one listener is added
+         * The listener is finished with the run, so it serves a single built Genetics object, see BatchRunner.listener for batches
+         * @param listener
+         */
+        public Builder listener(GenerationListener listener){
+            this.listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * Adds a sink that receives the fittest melody every snapshotInterval generations and at the end of the run,
+         * e.g. a JsonLinesSink, MidiFileSink, MultiTrackMidiSink or PlaybackSink
+         * Every sink runs on its own background thread behind a bounded queue, so a slow sink never blocks the algorithm
+         * The sink is closed with the run, so it serves a single built Genetics object, see BatchRunner.sink for batches
+         * @param sink
+         */
+        public Builder sink(MelodySink sink){
+            this.sinks.add(sink);
+            return this;
+        }
+
+        /**
+         * Number of generations between two snapshots sent to sinks, counted like maxGenerations
+         * @param snapshotInterval positive Integer, 1000 by default
+         */
+        public Builder snapshotInterval(int snapshotInterval){
+            if(snapshotInterval < 1)
+                throw new IllegalArgumentException("Snapshot interval must be positive");
+            this.snapshotInterval = snapshotInterval;
+            return this;
+        }
+
+        /**
+         * Periodically snapshots the run to a file it can later be resumed from through Builder.resume
+         * A snapshot is taken after the first generation that ends at least interval after the previous one, and once more when the run ends
+         * With STEADY_STATE or MU_PLUS_LAMBDA replacement a generation ends every populationSize / offspringCount steps,
+         * a run stopping between two, e.g. on a match or an exception, keeps the previous snapshot, whose resumed run repeats the steps since
+         * @param path checkpoint file, replaced on every snapshot
+         * @param interval positive Duration, a few seconds keeps the cost of writing negligible
+         */
+        public Builder checkpoint(Path path, Duration interval){
+            if(interval.isNegative() || interval.isZero())
+                throw new IllegalArgumentException("Checkpoint interval must be positive");
+            this.checkpointPath = path;
+            this.checkpointInterval = interval;
+            return this;
+        }
+
         /**
          * Creates a Genetics object with parameters set through Pattern Builder
          * @return Genetics object
          */
         public Genetics build(){
+            return build(List.of(), List.of());
+        }
+
+        /**
+         * @return whether listeners, sinks or a checkpoint file were set, which every Genetics object built afterwards would share
+         */
+        boolean hasOutputs(){
+            return !listeners.isEmpty() || !sinks.isEmpty() || checkpointPath != null;
+        }
+
+        /**
+         * Creates a Genetics object with parameters set through Pattern Builder and outputs of its own
+         * @param runListeners listeners of this run only, after those added to the builder
+         * @param runSinks sinks of this run only, after those added to the builder
+         * @return Genetics object
+         */
+        Genetics build(List<GenerationListener> runListeners, List<MelodySink> runSinks){
+            if(target == null)
+                throw new IllegalStateException("Target melody must be set");
+            if(endCondition == EndCondition.TIME_BUDGET && timeBudget == null)
+                throw new IllegalStateException("Time budget must be set for TIME_BUDGET end condition");
+            int offspringCount = this.offspringCount > 0 ? this.offspringCount
+                    : replacementMethod == ReplacementMethod.STEADY_STATE ? 2 : populationSize;
+            if(replacementMethod == ReplacementMethod.MU_COMMA_LAMBDA && offspringCount < populationSize - elitismCount)
+                throw new IllegalStateException("Offspring count must be at least populationSize - elitismCount for MU_COMMA_LAMBDA replacement");
+            long genes = (long) Math.max(populationSize, offspringCount) * target.length();
+            if(populationStorage == PopulationStorage.HEAP && genes > Integer.MAX_VALUE)
+                throw new IllegalStateException("Population of more than 2^31 genes needs DIRECT or MAPPED population storage");
             Genetics genetics = new Genetics();
+            genetics.target = this.target;
+            genetics.fitnessMethod = this.fitnessMethod;
+            genetics.fitnessFunction = this.fitnessFunction.apply(this.target);
+            if(genetics.fitnessFunction.length() != this.target.length())
+                throw new IllegalStateException("Fitness function must be created for a target of the same length");
             genetics.populationSize = this.populationSize;
             genetics.maxGenerations = this.maxGenerations;
             genetics.endCondition = this.endCondition;
@@ -136,15 +558,52 @@ public class Genetics {
             genetics.selectionMethod = this.selectionMethod;
             genetics.tournamentK = this.tournamentK;
             genetics.closeEnoughPercentage = this.closeEnoughPercentage;
+            genetics.stagnationGenerations = this.stagnationGenerations;
+            genetics.timeBudget = this.timeBudget == null ? 0 : this.timeBudget.toNanos();
+            genetics.adaptationMethod = this.adaptationMethod;
+            genetics.diversityMeasure = this.diversityMeasure;
+            genetics.diversityThreshold = this.diversityThreshold;
+            genetics.restartFraction = this.restartFraction;
+            genetics.duplicatePolicy = this.duplicatePolicy;
             genetics.elitismCount = this.elitismCount;
-            genetics.random = new Random();
+            genetics.replacementMethod = this.replacementMethod;
+            genetics.offspringCount = offspringCount;
+            genetics.parallelism = this.parallelism;
+            genetics.seed = this.seed;
+            genetics.randomSource = this.randomSource;
+            genetics.timeOperators = this.timeOperators;
+            genetics.fitnessCacheSize = this.fitnessCacheSize;
+            genetics.populationStorage = this.populationStorage;
+            genetics.storageDirectory = this.storageDirectory;
+            genetics.listeners = concat(this.listeners, runListeners);
+            genetics.sinks = concat(this.sinks, runSinks);
+            genetics.snapshotInterval = this.snapshotInterval;
+            genetics.checkpointPath = this.checkpointPath;
+            genetics.checkpointInterval = this.checkpointInterval == null ? 0 : this.checkpointInterval.toNanos();
+            genetics.resumeFrom = this.resumeFrom;
             genetics.generation = 0;
 
             return genetics;
         }
+
+        private static <T> List<T> concat(List<T> first, List<T> second){
+            List<T> result = new ArrayList<>(first);
+            result.addAll(second);
+            return List.copyOf(result);
+        }
     }
 
-    private List<Melody> population = new ArrayList<>();
+    /** Current generation and the buffer the next generation is written into, swapped after every step */
+    private Population population, nextPopulation;
+    private Melody target;
+    private FitnessMethod fitnessMethod;
+    private FitnessFunction fitnessFunction;
+    private int fitnessCacheSize;
+    /** Shared by both population buffers and all workers, null if fitnessCacheSize is 0 */
+    private FitnessCache fitnessCache;
+    private PopulationStorage populationStorage;
+    /** null for java.io.tmpdir */
+    private Path storageDirectory;
     private int populationSize, maxGenerations, tournamentK;
     private EndCondition endCondition;
     private CrossoverMethod crossoverMethod;
@@ -152,220 +611,1064 @@ public class Genetics {
     private MutationMethod mutationMethod;
     private SelectionMethod selectionMethod;
     private double closeEnoughPercentage;
+    private int stagnationGenerations;
+    private long timeBudget;
+    private AdaptationMethod adaptationMethod;
+    private DiversityMeasure diversityMeasure;
+    private double diversityThreshold, restartFraction;
+    private DuplicatePolicy duplicatePolicy;
+    /** Counts alleles of current population, null until a measurement needs them, see diversityTracker() */
+    private DiversityTracker diversityTracker;
+    /** Hashes of children of the generation being bred and the set they are checked against for duplicates */
+    private long[] childHashes;
+    private GenomeSet genomes;
+    /** Breeds replacements of duplicates on the calling thread */
+    private Worker duplicateWorker;
+    /** Mutation likelihood of current generation, differs from mutationLikelihood only while hypermutating */
+    private double currentMutationLikelihood;
+    /** log(1 - currentMutationLikelihood), updated before every generation is bred */
+    private double logMutationMiss;
+    /** Lowest and highest pitch of target and bit i set for every pitch class i it contains, bounds of PITCH_STEP mutation */
+    private int lowestPitch, highestPitch, keyMask;
+    /** Highest best fitness so far and the generation it was first reached in */
+    private int bestEverFitness, bestEverGeneration;
+    private int restarts;
+    /** Number of duplicate children replaced so far */
+    private long duplicates;
     private int elitismCount;
-    private Random random;
+    private ReplacementMethod replacementMethod;
+    /** Number of children bred per step, populationSize for GENERATIONAL, which breeds populationSize - elitismCount of them */
+    private int offspringCount;
+    /** Least fit melodies of current population for STEADY_STATE and MU_PLUS_LAMBDA, children of MU_COMMA_LAMBDA */
+    private FitnessHeap heap;
+    /** Whether heap is out of date because current population was changed other than through the heap */
+    private boolean heapStale;
+    /** Steps breeding as many children as populationSize, 1 unless replacement is STEADY_STATE or MU_PLUS_LAMBDA */
+    private int stepsPerGeneration;
+    /** Whether ranking and selection tables must be rebuilt before the next step regardless of stepsPerGeneration */
+    private boolean selectionStale;
+    private int parallelism;
+    private long seed;
+    private RandomSource randomSource;
+    private boolean timeOperators;
+    private List<GenerationListener> listeners;
+    private List<MelodySink> sinks;
+    private int snapshotInterval;
+    private List<SinkDispatcher> dispatchers = List.of();
+    private Path checkpointPath;
+    private long checkpointInterval, lastCheckpoint;
+    private Checkpoint checkpoint, resumeFrom;
+    /** Operator times and allocations summed over all workers up to the previous generation */
+    private long selectionTime, crossoverTime, mutationTime, evaluationTime, allocatedBytes;
+    /** System.nanoTime() and bytes allocated by the calling thread when statistics were last published */
+    private long statisticsStart, statisticsAllocationStart;
+    private ForkJoinPool pool;
+    private Worker[] workers;
+    private AliasTable selectionTable;
+    /** Melody indices of current population by descending fitness, only kept for elitism and rank selection */
+    private int[] ranking;
     private int generation;
+    /** Index of fittest melody in current population */
+    private int bestIndex;
+    private int bestFitness;
+    private long startTime;
     private long elapsedTime;
     private Melody best;
-    List<Melody> playList = new ArrayList<>();
 
     private Genetics(){}
 
+    /**
+     * Number of offspring produced with a single random stream
+     */
+    private static final int CHUNK_SIZE = 64;
+
+    /**
+     * Number of snapshots that can wait for a slow sink before the oldest ones are dropped
+     */
+    private static final int SINK_CAPACITY = 16;
+
+    /**
+     * Number of generations between two diversity checks of adaptation, measuring diversity costs about as much as breeding a generation
+     */
+    private static final int ADAPTATION_INTERVAL = 16;
+
+    /**
+     * Number of times the second parent is selected again when it is the first one, before any other melody is taken instead
+     * Selection concentrated on a single melody, e.g. RANK with a small population, would otherwise retry for long
+     */
+    private static final int SELECTION_ATTEMPTS = 16;
+
+    /**
+     * Number of times a duplicate child is bred again or mutated before it is kept
+     */
+    private static final int DUPLICATE_ATTEMPTS = 4;
+
     /**
      * Runs the genetic algorithm
      */
     public void run(){
-        long startTime = System.nanoTime();
-        //Initial population
-        for (int i = 0; i < populationSize; i++) {
-            population.add(MelodyUtil.randomMelody());
-        }
-        generation = 1;
-
-        boolean exitCondition = false;
-        //Run genetic algorithm
-        while(!exitCondition){
-            //Fill new population
-            List<Melody> newPopulation = new ArrayList<>();
-            //Elitism
-            if(elitismCount > 0){
-                population.sort(Comparator.comparing(Melody::fitness).reversed());
-                population.subList(0, elitismCount).forEach(m -> newPopulation.add(m));
+        try {
+            initialize();
+            //Run genetic algorithm
+            while(!isFinished()){
+                step();
             }
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Creates the initial population, must be followed by finish() once the run is over
+     */
+    void initialize(){
+        startTime = System.nanoTime();
+        if(parallelism > 1) pool = new ForkJoinPool(parallelism);
+        //Unless replacement is generational, nextPopulation only holds the children of a step
+        boolean generational = replacementMethod == ReplacementMethod.GENERATIONAL;
+        int nextSize = generational ? populationSize : offspringCount;
+        workers = new Worker[(Math.max(populationSize, nextSize) + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(tournamentK);
+        }
+        fitnessCache = fitnessCacheSize > 0 ? new FitnessCache(fitnessCacheSize) : null;
+        Path directory = storageDirectory != null ? storageDirectory : Path.of(System.getProperty("java.io.tmpdir"));
+        population = new Population(populationSize, fitnessFunction, fitnessCache,
+                GeneStore.of(populationStorage, populationSize, target.length(), directory));
+        nextPopulation = new Population(nextSize, fitnessFunction, fitnessCache,
+                GeneStore.of(populationStorage, nextSize, target.length(), directory));
+        heap = generational ? null : new FitnessHeap(populationSize);
+        heapStale = true;
+        if(resumeFrom != null){
+            //Population of checkpointed run, used once so running again starts over
+            try {
+                resumeFrom.readGenes(population.genes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            population.evaluate(0, populationSize);
+            generation = resumeFrom.generation;
+            startTime -= resumeFrom.elapsedTime;
+            currentMutationLikelihood = resumeFrom.currentMutationLikelihood;
+            bestEverFitness = resumeFrom.bestEverFitness;
+            bestEverGeneration = resumeFrom.bestEverGeneration;
+            restarts = resumeFrom.restarts;
+            duplicates = resumeFrom.duplicates;
+            resumeFrom = null;
+        }
+        else {
+            //Initial population
+            generation = 0;
+            forEachChunk(0, populationSize, (worker, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    for (int j = 0; j < population.length; j++) {
+                        population.genes.set(i, j, MelodyUtil.randomGene(worker.random));
+                    }
+                }
+                population.evaluate(from, to);
+            });
+            generation = 1;
+            currentMutationLikelihood = mutationLikelihood;
+            bestEverFitness = population.fitness[population.best()];
+            bestEverGeneration = generation;
+            restarts = 0;
+            duplicates = 0;
+        }
+        bestIndex = population.best();
+        bestFitness = population.fitness[bestIndex];
+        //Incremental replacement breeds a generation's worth of children over several steps
+        stepsPerGeneration = generational || replacementMethod == ReplacementMethod.MU_COMMA_LAMBDA ? 1 : Math.max(1, populationSize / offspringCount);
+        selectionStale = true;
+        diversityTracker = null;
+        if(duplicatePolicy != DuplicatePolicy.ALLOW){
+            childHashes = new long[nextSize];
+            genomes = new GenomeSet(nextSize);
+            duplicateWorker = new Worker(tournamentK);
+        }
+        lowestPitch = 127;
+        highestPitch = 0;
+        keyMask = 0;
+        for (short gene : target.getGenes()) {
+            lowestPitch = Math.min(lowestPitch, Note.pitch(gene));
+            highestPitch = Math.max(highestPitch, Note.pitch(gene));
+            keyMask |= 1 << Note.pitch(gene) % 12;
+        }
+        lastCheckpoint = System.nanoTime();
+        statisticsStart = listeners.isEmpty() ? 0 : System.nanoTime();
+        statisticsAllocationStart = listeners.isEmpty() ? 0 : currentThreadAllocatedBytes();
+        dispatchers = sinks.stream().map(sink -> new SinkDispatcher(sink, SINK_CAPACITY)).toList();
+
+        if(selectionMethod == SelectionMethod.ROULETTE || selectionMethod == SelectionMethod.RANK)
+            selectionTable = new AliasTable(populationSize);
+        //Rank weights only depend on population size, so the table is built once per run
+        if(selectionMethod == SelectionMethod.RANK){
+            int[] rankWeights = new int[populationSize];
+            for (int i = 0; i < populationSize; i++) {
+                rankWeights[i] = populationSize - i;
+            }
+            selectionTable.build(rankWeights);
+        }
+    }
+
+    /**
+     * Breeds children into the back buffer, then replaces current population with them according to replacementMethod
+     * Work proportional to populationSize, i.e. ranking, selection tables, adaptation, statistics and checkpoints,
+     * is done once every stepsPerGeneration steps, so a step of STEADY_STATE or MU_PLUS_LAMBDA costs O(offspringCount log populationSize) amortized
+     */
+    void step(){
+        boolean generational = replacementMethod == ReplacementMethod.GENERATIONAL;
+        //Replacement keeping the fittest of parents and children is elitist without copying elites
+        int elites = generational || replacementMethod == ReplacementMethod.MU_COMMA_LAMBDA ? elitismCount : 0;
+        //Scheduled by generation alone, so a resumed run refreshes in the same steps as the interrupted one
+        boolean refresh = selectionStale || generation % stepsPerGeneration == 0;
+        selectionStale = false;
+        //Population is ranked once per generation for both elitism and rank selection
+        if(elites > 0 || selectionMethod == SelectionMethod.RANK && refresh)
+            ranking = population.ranking();
+        //Elitism, elites of MU_COMMA_LAMBDA stay in place
+        int firstChild = generational ? elitismCount : 0;
+        for (int i = 0; i < firstChild; i++) {
+            population.copy(ranking[i], nextPopulation, i);
+        }
+        //Roulette weights change every generation, the table is shared read-only by all workers
+        //With incremental replacement a table lags behind by at most a generation's worth of children
+        if(selectionMethod == SelectionMethod.ROULETTE && refresh)
+            selectionTable.build(population.fitness);
+        logMutationMiss = Math.log(1 - currentMutationLikelihood);
+
+        forEachChunk(firstChild, nextPopulation.size, (worker, from, to) -> {
+            for (int i = from; i < to; i++) {
+                breed(i, worker);
+            }
+        });
+        if(duplicatePolicy != DuplicatePolicy.ALLOW) replaceDuplicates(firstChild);
+
+        switch(replacementMethod){
+            case GENERATIONAL -> {
+                Population previous = population;
+                population = nextPopulation;
+                nextPopulation = previous;
+            }
+            case STEADY_STATE -> replaceWorst(false);
+            case MU_PLUS_LAMBDA -> replaceWorst(true);
+            case MU_COMMA_LAMBDA -> truncate(elites);
+        }
+        //Allele counts follow the few children replaceWorst moves in, all others replace most of the population
+        if(diversityTracker != null && (generational || replacementMethod == ReplacementMethod.MU_COMMA_LAMBDA))
+            diversityTracker.invalidate();
+        //replaceWorst keeps bestIndex up to date
+        if(generational || replacementMethod == ReplacementMethod.MU_COMMA_LAMBDA)
+            bestIndex = population.best();
+        bestFitness = population.fitness[bestIndex];
+
+        generation++;
+
+        if(bestFitness > bestEverFitness){
+            bestEverFitness = bestFitness;
+            bestEverGeneration = generation;
+        }
+        if(!dispatchers.isEmpty() && generation % ((long) snapshotInterval * stepsPerGeneration) == 0) publishSnapshot(population.get(bestIndex));
+
+        if(generation % stepsPerGeneration != 0) return;
+
+        if(adaptationMethod != AdaptationMethod.NONE && generation % (ADAPTATION_INTERVAL * stepsPerGeneration) == 0) adapt();
+
+        if(!listeners.isEmpty()) publishStatistics();
+
+        if(checkpointPath != null && System.nanoTime() - lastCheckpoint >= checkpointInterval) writeCheckpoint();
+    }
+
+    /**
+     * Moves the children in next population into current population, each taking the place of the least fit melody
+     * The heap of least fit melodies is kept between steps, so a child costs O(log populationSize)
+     * bestIndex is updated from the children that enter, it is only searched again if the fittest melody itself was replaced
+     * @param onlyIfFitter whether a child only replaces a melody it is fitter than, keeping the fittest of parents and children
+     */
+    private void replaceWorst(boolean onlyIfFitter){
+        if(heapStale){
+            heap.build(population.fitness, populationSize);
+            heapStale = false;
+        }
+        boolean bestReplaced = false;
+        for (int i = 0; i < nextPopulation.size; i++) {
+            int worst = heap.min();
+            if(onlyIfFitter && nextPopulation.fitness[i] <= population.fitness[worst]) continue;
+            //Least fit melody is only the fittest if all are equally fit
+            if(worst == bestIndex && nextPopulation.fitness[i] < population.fitness[worst]) bestReplaced = true;
+            if(diversityTracker != null) diversityTracker.remove(population, worst);
+            nextPopulation.copy(i, population, worst);
+            if(diversityTracker != null) diversityTracker.add(population, worst);
+            heap.rootChanged();
+            //Ties go to the lower index as in Population.best(), so bestIndex does not depend on where a run was resumed
+            if(population.fitness[worst] > population.fitness[bestIndex]
+                    || population.fitness[worst] == population.fitness[bestIndex] && worst < bestIndex) bestIndex = worst;
+        }
+        if(bestReplaced) bestIndex = population.best();
+    }
+
+    /**
+     * Replaces every melody of current population but the elites with the fittest children in next population
+     * The fittest children are found with a heap of size populationSize - elites in O(offspringCount log populationSize)
+     * @param elites number of elites, which stay in place
+     */
+    private void truncate(int elites){
+        int survivors = populationSize - elites;
+        heap.build(nextPopulation.fitness, survivors);
+        for (int i = survivors; i < nextPopulation.size; i++) {
+            if(nextPopulation.fitness[i] > nextPopulation.fitness[heap.min()]) heap.replaceMin(i);
+        }
+        for (int i = 0; i < survivors; i++) {
+            nextPopulation.copy(heap.get(i), population, elites > 0 ? ranking[elites + i] : i);
+        }
+    }
 
-            while(newPopulation.size() != populationSize){
-                //Select parents
-                Melody parent1 = switch(selectionMethod){
-                    case TOURNAMENT -> tournament();
-                    case ROULETTE -> roulette();
-                    case RANK -> rank();
-                };
-                Melody parent2 = parent1;
-                while(parent1 == parent2){
-                    parent2 = switch(selectionMethod){
-                        case TOURNAMENT -> tournament();
-                        case ROULETTE -> roulette();
-                        case RANK -> rank();
-                    };
+    /**
+     * Replaces children of next population that duplicate a melody with a lower index, according to duplicatePolicy
+     * Hashes are computed in parallel, replacements are made in order of index on the calling thread
+     * with a stream derived from seed and generation, so they do not depend on parallelism
+     * @param firstChild index of first child, melodies before it are elites that are never replaced
+     */
+    private void replaceDuplicates(int firstChild){
+        forEachChunk(0, nextPopulation.size, (worker, from, to) -> {
+            for (int i = from; i < to; i++) {
+                childHashes[i] = nextPopulation.hash(i);
+            }
+        });
+        genomes.clear();
+        boolean seeded = false;
+        for (int i = 0; i < nextPopulation.size; i++) {
+            //Elites stay even if they duplicate each other
+            if(genomes.add(childHashes[i]) || i < firstChild) continue;
+            if(!seeded){
+                duplicateWorker.random = randomGenerator(Long.reverse(seed) ^ generation * 0x9E3779B97F4A7C15L);
+                seeded = true;
+            }
+            RandomGenerator random = duplicateWorker.random;
+            for (int attempt = 0; attempt < DUPLICATE_ATTEMPTS; attempt++) {
+                switch(duplicatePolicy){
+                    case ALLOW -> {}
+                    case REJECT -> breed(i, duplicateWorker);
+                    case REMUTATE -> nextPopulation.setGene(i, random.nextInt(nextPopulation.length), MelodyUtil.randomGene(random));
                 }
-                //Create new melody from parents
-                Melody newMelody = switch(crossoverMethod){
-                    case ONE_POINT -> onePointCrossover(parent1, parent2);
-                    case TWO_POINT -> twoPointCrossover(parent1, parent2);
-                    case UNIFORM -> uniformCrossover(parent1, parent2);
-                };
-                //Undergo mutation randomly
-                mutate(newMelody);
-
-                newPopulation.add(newMelody);
+                if(genomes.add(nextPopulation.hash(i))) break;
             }
+            duplicates++;
+        }
+    }
 
-            int bestFitness = newPopulation.stream().max(Comparator.comparing(Melody::fitness)).get().fitness();
-            population = newPopulation;
+    /**
+     * @param population population to measure
+     * @return diversity of population as measured by diversityMeasure
+     */
+    private double diversity(Population population){
+        if(diversityMeasure == DiversityMeasure.DISTINCT) return population.distinctRatio();
+        diversityTracker().measure(population);
+        return diversityMeasure == DiversityMeasure.ENTROPY ? diversityTracker.entropy() : diversityTracker.hammingDistance();
+    }
 
-            generation++;
+    /**
+     * @return allele counts of current population, created by the first measurement that needs them
+     * since they take a few times the memory of the genes, until then replacement skips updating them
+     */
+    private DiversityTracker diversityTracker(){
+        if(diversityTracker == null) diversityTracker = new DiversityTracker(populationSize, population.length);
+        return diversityTracker;
+    }
 
-            if(generation % 1000 == 0) playList.add(population.stream().max(Comparator.comparing(Melody::fitness)).get());
+    /**
+     * Reacts to diversity of current population according to adaptationMethod
+     */
+    private void adapt(){
+        boolean collapsed = diversity(population) < diversityThreshold;
+        switch(adaptationMethod){
+            case NONE -> {}
+            //Doubling starts from at least 5% so a run without mutation can still escape
+            case HYPERMUTATION -> currentMutationLikelihood = collapsed
+                    ? Math.min(1, Math.max(2 * currentMutationLikelihood, 0.05))
+                    : mutationLikelihood + (currentMutationLikelihood - mutationLikelihood) / 2;
+            case RESTART -> {
+                if(collapsed) restart();
+            }
+        }
+    }
 
-            if(endCondition == EndCondition.MAX_GENERATIONS && generation == maxGenerations
-            || endCondition == EndCondition.EXACT_MATCH && App.TARGET_MELODY.fitness() == bestFitness
-            || endCondition == EndCondition.CLOSE_ENOUGH && bestFitness/(double)App.TARGET_MELODY.fitness() >= closeEnoughPercentage)
-                exitCondition = true;
+    /**
+     * Replaces the least fit restartFraction of current population with random melodies, keeping at least the elite
+     */
+    private void restart(){
+        int[] ranking = population.ranking();
+        int replaced = Math.min(populationSize - Math.max(elitismCount, 1), (int) Math.round(restartFraction * populationSize));
+        //Stream differs from the one forEachChunk derives for this generation
+        RandomGenerator random = randomGenerator(~seed ^ generation * 0x9E3779B97F4A7C15L);
+        for (int i = populationSize - replaced; i < populationSize; i++) {
+            for (int j = 0; j < population.length; j++) {
+                population.genes.set(ranking[i], j, MelodyUtil.randomGene(random));
+            }
+            population.evaluate(ranking[i]);
         }
+        bestIndex = population.best();
+        bestFitness = population.fitness[bestIndex];
+        heapStale = true;
+        selectionStale = true;
+        if(diversityTracker != null) diversityTracker.invalidate();
+        restarts++;
+    }
 
-        best = population.stream().max(Comparator.comparing(Melody::fitness)).get();
+    /**
+     * Snapshots current population and parameters to checkpointPath
+     * Genes are written straight from the population's gene store, the buffer they are written through is reused
+     */
+    private void writeCheckpoint(){
+        if(checkpoint == null) checkpoint = new Checkpoint();
+        checkpoint.populationSize = populationSize;
+        checkpoint.maxGenerations = maxGenerations;
+        checkpoint.tournamentK = tournamentK;
+        checkpoint.endCondition = endCondition;
+        checkpoint.crossoverMethod = crossoverMethod;
+        checkpoint.mutationLikelihood = mutationLikelihood;
+        checkpoint.mutationMethod = mutationMethod;
+        checkpoint.selectionMethod = selectionMethod;
+        checkpoint.closeEnoughPercentage = closeEnoughPercentage;
+        checkpoint.stagnationGenerations = stagnationGenerations;
+        checkpoint.timeBudget = timeBudget;
+        checkpoint.adaptationMethod = adaptationMethod;
+        checkpoint.diversityMeasure = diversityMeasure;
+        checkpoint.diversityThreshold = diversityThreshold;
+        checkpoint.restartFraction = restartFraction;
+        checkpoint.duplicatePolicy = duplicatePolicy;
+        checkpoint.duplicates = duplicates;
+        checkpoint.currentMutationLikelihood = currentMutationLikelihood;
+        checkpoint.bestEverFitness = bestEverFitness;
+        checkpoint.bestEverGeneration = bestEverGeneration;
+        checkpoint.restarts = restarts;
+        checkpoint.elitismCount = elitismCount;
+        checkpoint.replacementMethod = replacementMethod;
+        checkpoint.offspringCount = offspringCount;
+        checkpoint.parallelism = parallelism;
+        checkpoint.seed = seed;
+        checkpoint.randomSource = randomSource;
+        checkpoint.timeOperators = timeOperators;
+        checkpoint.fitnessCacheSize = fitnessCacheSize;
+        checkpoint.populationStorage = populationStorage;
+        checkpoint.storageDirectory = storageDirectory;
+        checkpoint.generation = generation;
+        checkpoint.elapsedTime = System.nanoTime() - startTime;
+        checkpoint.intervalMillis = checkpointInterval / 1000000;
+        checkpoint.target = target.getGenes();
+        checkpoint.fitnessMethod = fitnessMethod;
+        checkpoint.genes = population.genes;
+        checkpoint.length = population.length;
+        try {
+            checkpoint.write(checkpointPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastCheckpoint = System.nanoTime();
+    }
+
+    /**
+     * Sends statistics of the generation that was just created to all listeners
+     * Times and allocations cover the stepsPerGeneration steps since the previous statistics
+     */
+    private void publishStatistics(){
+        long totalSelectionTime = 0, totalCrossoverTime = 0, totalMutationTime = 0, totalEvaluationTime = 0, totalAllocatedBytes = 0;
+        for (Worker worker : workers) {
+            totalSelectionTime += worker.selectionTime;
+            totalCrossoverTime += worker.crossoverTime;
+            totalMutationTime += worker.mutationTime;
+            totalEvaluationTime += worker.evaluationTime;
+            totalAllocatedBytes += worker.allocatedBytes;
+        }
+        int[] fitness = population.fitness;
+        long fitnessSum = 0;
+        int minFitness = Integer.MAX_VALUE;
+        for (int value : fitness) {
+            fitnessSum += value;
+            minFitness = Math.min(minFitness, value);
+        }
+        long allocated = currentThreadAllocatedBytes();
+        //Worker allocations are only tracked on pool threads, otherwise the calling thread already counted them
+        long generationAllocatedBytes = allocated < 0 ? -1 : allocated - statisticsAllocationStart + totalAllocatedBytes - allocatedBytes;
+        long stepTime = System.nanoTime() - statisticsStart;
+        diversityTracker().measure(population);
+
+        GenerationStatistics statistics = new GenerationStatistics(generation, bestFitness, fitnessSum / (double) populationSize, minFitness,
+                population.distinctRatio(), diversityTracker.entropy(), diversityTracker.hammingDistance(),
+                totalSelectionTime - selectionTime, totalCrossoverTime - crossoverTime,
+                totalMutationTime - mutationTime, totalEvaluationTime - evaluationTime,
+                generationAllocatedBytes, stepsPerGeneration * 1e9 / Math.max(1, stepTime));
+        selectionTime = totalSelectionTime;
+        crossoverTime = totalCrossoverTime;
+        mutationTime = totalMutationTime;
+        evaluationTime = totalEvaluationTime;
+        allocatedBytes = totalAllocatedBytes;
+        listeners.forEach(listener -> listener.onGeneration(statistics));
+        statisticsStart = System.nanoTime();
+        statisticsAllocationStart = currentThreadAllocatedBytes();
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    /**
+     * @return bytes allocated so far by the calling thread, -1 if not supported by the JVM
+     */
+    private static long currentThreadAllocatedBytes(){
+        return THREAD_MX_BEAN == null ? -1 : THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @return whether the end condition has been met by the current population
+     */
+    boolean isFinished(){
+        //Limits count generations, generation counts steps, of which a generation of STEADY_STATE or MU_PLUS_LAMBDA takes several
+        return endCondition == EndCondition.MAX_GENERATIONS && generation >= (long) maxGenerations * stepsPerGeneration
+            || endCondition == EndCondition.EXACT_MATCH && fitnessFunction.maxFitness() == bestFitness
+            || endCondition == EndCondition.CLOSE_ENOUGH && bestFitness/(double)fitnessFunction.maxFitness() >= closeEnoughPercentage
+            || endCondition == EndCondition.STAGNATION && (fitnessFunction.maxFitness() == bestFitness || generation - bestEverGeneration >= (long) stagnationGenerations * stepsPerGeneration)
+            || endCondition == EndCondition.TIME_BUDGET && (fitnessFunction.maxFitness() == bestFitness || System.nanoTime() - startTime >= timeBudget);
+    }
+
+    /**
+     * Releases worker threads and records the best melody and elapsed time of the run
+     */
+    void finish(){
+        if(pool != null) pool.shutdown();
+        pool = null;
+        if(population == null) return;
+
+        best = population.get(bestIndex);
 
         elapsedTime = System.nanoTime() - startTime;
+
+        //Tables of the current generation cannot be restored in the middle of it, so the previous checkpoint is kept
+        if(checkpointPath != null && generation % stepsPerGeneration == 0) writeCheckpoint();
+
+        listeners.forEach(GenerationListener::onFinish);
+
+        //Final melody, unless the last generation already sent it
+        if(generation % ((long) snapshotInterval * stepsPerGeneration) != 0) publishSnapshot(best);
+        List<SinkDispatcher> dispatchers = this.dispatchers;
+        this.dispatchers = List.of();
+        dispatchers.forEach(SinkDispatcher::close);
+    }
+
+    /**
+     * Queues a snapshot for every sink without waiting for any of them
+     * @param melody fittest melody of current generation
+     */
+    private void publishSnapshot(Melody melody){
+        MelodySnapshot snapshot = new MelodySnapshot(generation, melody, fitnessFunction.maxFitness(), System.nanoTime() - startTime);
+        for (SinkDispatcher dispatcher : dispatchers) {
+            dispatcher.offer(snapshot);
+        }
+    }
+
+    /**
+     * @param count number of melodies to return
+     * @return copies of the count fittest melodies in current population
+     */
+    List<Melody> emigrants(int count){
+        int[] ranking = population.ranking();
+        List<Melody> emigrants = new ArrayList<>();
+        for (int i = 0; i < count && i < populationSize; i++) {
+            emigrants.add(population.get(ranking[i]));
+        }
+        return emigrants;
+    }
+
+    /**
+     * Replaces the least fit melodies in current population with given migrants
+     * @param migrants melodies coming from another population
+     */
+    void immigrate(List<Melody> migrants){
+        int[] ranking = population.ranking();
+        for (int i = 0; i < migrants.size() && i < populationSize; i++) {
+            population.set(ranking[populationSize - 1 - i], migrants.get(i));
+        }
+        bestIndex = population.best();
+        bestFitness = population.fitness[bestIndex];
+        heapStale = true;
+        selectionStale = true;
+        if(diversityTracker != null) diversityTracker.invalidate();
+    }
+
+    /**
+     * @return number of generations of the most recent run, of steps with STEADY_STATE or MU_PLUS_LAMBDA replacement
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return highest fitness in current population, valid between initialize() and finish()
+     */
+    int getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * @return fittest melody of the most recent run
+     */
+    public Melody getBest() {
+        return best;
+    }
+
+    /**
+     * @return melody the population evolves towards
+     */
+    public Melody getTarget() {
+        return target;
+    }
+
+    /**
+     * @return fitness function melodies are scored with
+     */
+    public FitnessFunction getFitnessFunction() {
+        return fitnessFunction;
+    }
+
+    /**
+     * @return built-in fitness function melodies are scored with, null if a custom one was set
+     */
+    public FitnessMethod getFitnessMethod() {
+        return fitnessMethod;
+    }
+
+    /**
+     * @return number of evaluations of the most recent run answered by the fitness cache, 0 if there is no cache
+     */
+    public long getCacheHits() {
+        return fitnessCache == null ? 0 : fitnessCache.hits();
+    }
+
+    /**
+     * @return number of evaluations of the most recent run the fitness cache could not answer, 0 if there is no cache
+     */
+    public long getCacheMisses() {
+        return fitnessCache == null ? 0 : fitnessCache.misses();
+    }
+
+    /**
+     * @return execution time of the most recent run in nanoseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * State owned by whoever processes one chunk of the population: its random stream and reusable scratch buffers
+     * Workers are created once per run, one per chunk, so producing offspring does not allocate per selection
+     */
+    private static class Worker {
+        private RandomGenerator random;
+        private final int[] tournamentCandidates;
+        /** Nanoseconds spent in each operator, only measured if timeOperators is set */
+        private long selectionTime, crossoverTime, mutationTime, evaluationTime;
+        /** Bytes allocated while processing chunks on pool threads, only measured if there are listeners */
+        private long allocatedBytes;
+        private long lapStart;
+
+        private Worker(int tournamentK) {
+            this.tournamentCandidates = new int[tournamentK];
+        }
+
+        /**
+         * @return nanoseconds since previous lap
+         */
+        private long lap(){
+            long now = System.nanoTime(), elapsed = now - lapStart;
+            lapStart = now;
+            return elapsed;
+        }
+    }
+
+    /**
+     * Open addressing set of melody hashes, cleared and refilled every generation without allocating
+     */
+    private static class GenomeSet {
+        private final long[] table;
+        private final int mask;
+        private boolean containsZero;
+
+        /**
+         * @param size maximum number of hashes, the table is kept at most half full
+         */
+        private GenomeSet(int size) {
+            this.table = new long[Integer.highestOneBit(Math.max(2, size) - 1) << 2];
+            this.mask = table.length - 1;
+        }
+
+        private void clear(){
+            Arrays.fill(table, 0);
+            containsZero = false;
+        }
+
+        /**
+         * @param hash hash of a melody
+         * @return whether hash was added, false if it was already in the set
+         */
+        private boolean add(long hash){
+            //0 marks an empty slot, so it is tracked separately
+            if(hash == 0){
+                boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                if(table[slot] == hash) return false;
+                if(table[slot] == 0){
+                    table[slot] = hash;
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Work done on a contiguous range of population indices by a dedicated worker
+     */
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(Worker worker, int from, int to);
+    }
+
+    /**
+     * Splits range [from, to) into chunks of CHUNK_SIZE and runs task on each, in parallel if parallelism is set
+     * Every chunk gets its own worker with a stream split off the current generation's random, so results only depend on seed
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @param task work to be done on each chunk
+     */
+    private void forEachChunk(int from, int to, ChunkTask task){
+        SplittableRandom generationRandom = new SplittableRandom(seed ^ generation * 0x9E3779B97F4A7C15L);
+        List<ForkJoinTask<?>> chunks = new ArrayList<>();
+        boolean trackAllocations = pool != null && !listeners.isEmpty() && THREAD_MX_BEAN != null;
+        for (int chunkStart = from, chunk = 0; chunkStart < to; chunkStart += CHUNK_SIZE, chunk++) {
+            int start = chunkStart, end = Math.min(to, chunkStart + CHUNK_SIZE);
+            Worker worker = workers[chunk];
+            long chunkSeed = generationRandom.nextLong();
+            Runnable chunkTask = () -> {
+                long allocationStart = trackAllocations ? currentThreadAllocatedBytes() : 0;
+                worker.random = randomGenerator(chunkSeed);
+                task.run(worker, start, end);
+                if(trackAllocations) worker.allocatedBytes += currentThreadAllocatedBytes() - allocationStart;
+            };
+            if(pool == null) chunkTask.run();
+            else chunks.add(pool.submit(chunkTask));
+        }
+        chunks.forEach(ForkJoinTask::join);
+    }
+
+    private static final RandomGeneratorFactory<RandomGenerator> LXM_FACTORY = RandomGeneratorFactory.of("L64X128MixRandom");
+
+    /**
+     * Creates the random stream of a single chunk, called on the thread that processes the chunk
+     * @param chunkSeed seed derived from run seed, generation and chunk
+     * @return generator of type set by randomSource
+     */
+    private RandomGenerator randomGenerator(long chunkSeed){
+        return switch(randomSource){
+            case SPLITTABLE -> new SplittableRandom(chunkSeed);
+            case LXM -> LXM_FACTORY.create(chunkSeed);
+            case JDK -> new Random(chunkSeed);
+            case THREAD_LOCAL -> ThreadLocalRandom.current();
+        };
+    }
+
+    /**
+     * Selects two parents from current population and writes a mutated child made from them into next population
+     * @param child index of child in next population
+     * @param worker calling worker
+     */
+    private void breed(int child, Worker worker){
+        if(timeOperators) worker.lap();
+        //Select parents
+        int parent1 = select(worker);
+        int parent2 = select(worker);
+        for (int attempt = 1; parent1 == parent2 && attempt < SELECTION_ATTEMPTS; attempt++) {
+            parent2 = select(worker);
+        }
+        //Selection keeps picking one melody, so any other one becomes the second parent
+        if(parent1 == parent2)
+            parent2 = (parent1 + 1 + worker.random.nextInt(populationSize - 1)) % populationSize;
+        if(timeOperators) worker.selectionTime += worker.lap();
+        //Create new melody from parents
+        switch(crossoverMethod){
+            case ONE_POINT -> onePointCrossover(parent1, parent2, child, worker);
+            case TWO_POINT -> twoPointCrossover(parent1, parent2, child, worker);
+            case UNIFORM -> uniformCrossover(parent1, parent2, child, worker);
+        }
+        //Undergo mutation randomly
+        mutate(child, worker);
+        if(timeOperators) worker.mutationTime += worker.lap();
+    }
+
+    private int select(Worker worker){
+        return switch(selectionMethod){
+            case TOURNAMENT -> tournament(worker);
+            case ROULETTE -> roulette(worker);
+            case RANK -> rank(worker);
+        };
     }
 
     /**
      * Selects K random distinct chromosomes from current population, then returns the one with highest fitness
      * tournamentK must be set
-     * @return selected Melody object
+     * @param worker calling worker
+     * @return index of selected melody
      */
-    private Melody tournament(){
-        List<Melody> candidates = new ArrayList<>();
-        //Select K random distinct chromosomes to enter tournament
-        random.ints(0, population.size()-1)
-                .distinct()
-                .limit(tournamentK)
-                .forEach(i -> candidates.add(population.get(i)));
+    private int tournament(Worker worker){
+        //Select K random distinct chromosomes to enter tournament using Floyd's sampling, tracking the best one inline
+        int[] candidates = worker.tournamentCandidates;
+        int[] fitness = population.fitness;
+        int best = -1;
+        for (int count = 0, j = populationSize - tournamentK; j < populationSize; count++, j++) {
+            int candidate = worker.random.nextInt(j + 1);
+            for (int c = 0; c < count; c++) {
+                if(candidates[c] == candidate){
+                    candidate = j;
+                    break;
+                }
+            }
+            candidates[count] = candidate;
+            if(best < 0 || fitness[candidate] > fitness[best])
+                best = candidate;
+        }
 
         //Return best chromosome from candidates
-        return candidates.stream().max(Comparator.comparing(Melody::fitness)).get();
+        return best;
     }
 
     /**
      * Selects a chromosome from current population using Roulette Wheel Selection
-     * @return selected Melody object
-     */
-    private Melody roulette(){
-        int populationFitness = population.stream().mapToInt(m -> m.fitness()).sum();
-        int current = 0, rouletteResult = random.nextInt(populationFitness);
-        for (Melody melody : population) {
-            current += melody.fitness();
-            if(rouletteResult < current){
-                return melody;
-            }
-        }
-        return null;
+     * Samples the alias table built from population fitness at the start of the generation in O(1)
+     * @param worker calling worker
+     * @return index of selected melody
+     */
+    private int roulette(Worker worker){
+        return selectionTable.sample(worker.random);
     }
 
     /**
      * Selects a chromosome from current population using Rank Selection
-     * @return selected Melody object
-     */
-    private Melody rank(){
-        population.sort(Comparator.comparing(Melody::fitness).reversed());
-        double current = 0, randomValue = random.nextDouble();
-        for (int i = 0; i < populationSize; i++) {
-            current += ((double)(populationSize-i)/(populationSize*(populationSize+1)/2));
-            if(randomValue < current){
-                return population.get(i);
-            }
-        }
-        return null;
+     * The i-th fittest melody, as ranked once per generation by step(), is picked from the alias table
+     * with weight (populationSize - i) in O(1)
+     * @param worker calling worker
+     * @return index of selected melody
+     */
+    private int rank(Worker worker){
+        return ranking[selectionTable.sample(worker.random)];
     }
 
     /**
      * Performs one point crossover of two parent chromosomes
-     * @param parent1
-     * @param parent2
-     * @return child chromosome
+     * @param parent1 index of parent in current population
+     * @param parent2 index of parent in current population
+     * @param child index of child in next population
+     * @param worker calling worker
      */
-    private Melody onePointCrossover(Melody parent1, Melody parent2){
-        long startTime = System.nanoTime();
-        int crossoverPoint = 1 + new Random().nextInt(App.MELODY_LENGTH-2);
-        List<Note> notes = new ArrayList<>();
-        for (int i = 0; i < crossoverPoint; i++) {
-            notes.add(parent1.getNotes().get(i));
-        }
-        for (int i = crossoverPoint; i < App.MELODY_LENGTH; i++) {
-            notes.add(parent2.getNotes().get(i));
-        }
-        System.out.println(System.nanoTime() - startTime);
-        return new Melody(notes);
+    private void onePointCrossover(int parent1, int parent2, int child, Worker worker){
+        int length = population.length;
+        int crossoverPoint = 1 + worker.random.nextInt(length-2);
+        population.genes.copy(parent1, 0, nextPopulation.genes, child, 0, crossoverPoint);
+        population.genes.copy(parent2, crossoverPoint, nextPopulation.genes, child, crossoverPoint, length - crossoverPoint);
+        if(timeOperators) worker.crossoverTime += worker.lap();
+        spliceFitness(parent1, parent2, child, crossoverPoint, length);
+        if(timeOperators) worker.evaluationTime += worker.lap();
     }
 
     /**
      * Performs two point crossover of two parent chromosomes
-     * @param parent1
-     * @param parent2
-     * @return child chromosome
+     * @param parent1 index of parent in current population
+     * @param parent2 index of parent in current population
+     * @param child index of child in next population
+     * @param worker calling worker
      */
-    private Melody twoPointCrossover(Melody parent1, Melody parent2){
-        List<Note> notes = new ArrayList<>();
-        int[] crossoverPoints = random.ints(1, App.MELODY_LENGTH-1)
-                .distinct()
-                .limit(2)
-                .toArray();
-        for(int i=0; i < crossoverPoints[0]; i++){
-            notes.add(parent1.getNotes().get(i));
-        }
-        for(int i = crossoverPoints[0]; i < crossoverPoints[1]; i++){
-            notes.add(parent2.getNotes().get(i));
+    private void twoPointCrossover(int parent1, int parent2, int child, Worker worker){
+        int length = population.length;
+        //Two distinct points in range [1, length-2]
+        int first = 1 + worker.random.nextInt(length-2), second = 1 + worker.random.nextInt(length-3);
+        if(second >= first) second++;
+        int from = Math.min(first, second), to = Math.max(first, second);
+        population.genes.copy(parent1, 0, nextPopulation.genes, child, 0, length);
+        population.genes.copy(parent2, from, nextPopulation.genes, child, from, to - from);
+        if(timeOperators) worker.crossoverTime += worker.lap();
+        spliceFitness(parent1, parent2, child, from, to);
+        if(timeOperators) worker.evaluationTime += worker.lap();
+    }
+
+    /**
+     * Sets fitness of a child made of parent1 with genes in range [from, to) taken from parent2,
+     * rescoring only the spliced genes unless the child is cached
+     * @param parent1 index of parent in current population
+     * @param parent2 index of parent in current population
+     * @param child index of child in next population
+     * @param from first locus taken from parent2 (inclusive)
+     * @param to last locus taken from parent2 (exclusive)
+     */
+    private void spliceFitness(int parent1, int parent2, int child, int from, int to){
+        if(fitnessCache == null){
+            nextPopulation.fitness[child] = population.spliceFitness(parent1, parent2, from, to);
+            return;
         }
-        for (int i = crossoverPoints[1]; i < App.MELODY_LENGTH; i++) {
-            notes.add(parent1.getNotes().get(i));
+        long key = nextPopulation.hash(child);
+        int fitness = fitnessCache.get(key);
+        if(fitness < 0){
+            fitness = population.spliceFitness(parent1, parent2, from, to);
+            fitnessCache.put(key, fitness);
         }
-        return new Melody(notes);
+        nextPopulation.fitness[child] = fitness;
     }
 
     /**
      * Performs uniform crossover of two parent chromosomes
-     * @param parent1
-     * @param parent2
-     * @return child chromosome
+     * @param parent1 index of parent in current population
+     * @param parent2 index of parent in current population
+     * @param child index of child in next population
+     * @param worker calling worker
      */
-    private Melody uniformCrossover(Melody parent1, Melody parent2){
-        List<Note> notes = new ArrayList<>();
-        for (int i = 0; i < App.MELODY_LENGTH; i++) {
-            Melody targetParent = random.nextBoolean() ? parent1 : parent2;
-            notes.add(targetParent.getNotes().get(i));
+    private void uniformCrossover(int parent1, int parent2, int child, Worker worker){
+        int length = population.length;
+        for (int i = 0; i < length; i++) {
+            int parent = worker.random.nextBoolean() ? parent1 : parent2;
+            nextPopulation.genes.set(child, i, population.genes.get(parent, i));
         }
-        return new Melody(notes);
+        if(timeOperators) worker.crossoverTime += worker.lap();
+        nextPopulation.evaluate(child);
+        if(timeOperators) worker.evaluationTime += worker.lap();
     }
 
     /**
      * Mutates a given melody dependent on mutationMethod parameter
      * if CHROMOSOME mutation is selected mutation occurs up to once per chromosome, with mutationLikelihood determining whether a single random gene inside the chromosome is mutated
      * if Gene mutation is selected mutation can occur any number of times per chromosome, with mutationLikelihood determining whether a given gene is mutated
-     * @param melody to mutate
+     * GEOMETRIC and PITCH_STEP pick genes like GENE, SWAP and INVERSION mutate like CHROMOSOME, see Builder.mutationMethod
+     * @param child index of melody to mutate in next population
+     * @param worker calling worker
      */
-    private void mutate(Melody melody){
+    private void mutate(int child, Worker worker){
+        int length = nextPopulation.length;
         switch(mutationMethod){
             case CHROMOSOME -> {
                 // Mutation can occur up to once per chromosome
                 // Mutation likelihood determines if a random gene inside chromosome is mutated
-                if(mutationMethod == MutationMethod.CHROMOSOME){
-                    if(random.nextInt(100) < mutationLikelihood*100){
-                        int selectedNote = random.nextInt(melody.getNotes().size());
-                        melody.getNotes().set(selectedNote, MelodyUtil.randomNote());
-                    }
+                if(worker.random.nextInt(100) < currentMutationLikelihood*100){
+                    int selectedNote = worker.random.nextInt(length);
+                    nextPopulation.setGene(child, selectedNote, MelodyUtil.randomGene(worker.random));
                 }
             }
             case GENE -> {
                 // Every gene can be mutated, regardless of other mutations in chromosome
                 // Mutation likelihood determines if a gene is mutated
-                for (int i = 0; i < melody.getNotes().size(); i++) {
-                    if(random.nextInt(100) < mutationLikelihood*100){
-                        melody.getNotes().set(i, MelodyUtil.randomNote());
+                for (int i = 0; i < length; i++) {
+                    if(worker.random.nextInt(100) < currentMutationLikelihood*100){
+                        nextPopulation.setGene(child, i, MelodyUtil.randomGene(worker.random));
+                    }
+                }
+            }
+            case GEOMETRIC -> {
+                for (int i = nextMutation(0, length, worker); i < length; i = nextMutation(i + 1, length, worker)) {
+                    nextPopulation.setGene(child, i, MelodyUtil.randomGene(worker.random));
+                }
+            }
+            case PITCH_STEP -> {
+                for (int i = nextMutation(0, length, worker); i < length; i = nextMutation(i + 1, length, worker)) {
+                    nextPopulation.setGene(child, i, stepGene(nextPopulation.genes.get(child, i), worker.random));
+                }
+            }
+            case SWAP -> {
+                if(worker.random.nextInt(100) < currentMutationLikelihood*100){
+                    int first = worker.random.nextInt(length), second = worker.random.nextInt(length - 1);
+                    if(second >= first) second++;
+                    swapGenes(child, first, second);
+                }
+            }
+            case INVERSION -> {
+                if(worker.random.nextInt(100) < currentMutationLikelihood*100){
+                    int first = worker.random.nextInt(length), second = worker.random.nextInt(length - 1);
+                    if(second >= first) second++;
+                    for (int from = Math.min(first, second), to = Math.max(first, second); from < to; from++, to--) {
+                        swapGenes(child, from, to);
                     }
                 }
             }
         }
     }
 
+    /**
+     * Index of the next gene to mutate when every gene mutates independently with currentMutationLikelihood
+     * The distance to it is geometrically distributed, so it is drawn with a single random number however many genes it skips
+     * @param from first candidate index
+     * @param length number of genes
+     * @param worker calling worker
+     * @return index in range [from, length], length if no further gene mutates
+     */
+    private int nextMutation(int from, int length, Worker worker){
+        if(currentMutationLikelihood >= 1) return from;
+        if(currentMutationLikelihood <= 0) return length;
+        double skipped = Math.log(1 - worker.random.nextDouble()) / logMutationMiss;
+        return skipped < length - from ? from + (int) skipped : length;
+    }
+
+    /**
+     * Moves a note by one musically small step: to the next pitch of the target's key up or down, an octave up or down,
+     * or to the next longer or shorter length
+     * Pitches are kept within the target's range, a step leaving it is taken in the other direction
+     * and a note outside of the range always moves towards it
+     * @param gene packed note
+     * @param random source of randomness
+     * @return packed note after the step
+     */
+    private short stepGene(short gene, RandomGenerator random){
+        int pitch = Note.pitch(gene), lengthCode = (gene & Note.LENGTH_MASK) >> Note.LENGTH_SHIFT;
+        int step = random.nextInt(8);
+        int direction = pitch < lowestPitch ? 1 : pitch > highestPitch ? -1 : (step & 1) == 0 ? 1 : -1;
+        switch(step >> 1){
+            case 0 -> {
+                int delta = (step & 1) == 0 ? 1 : -1;
+                lengthCode += lengthCode + delta >= 0 && lengthCode + delta < Note.LENGTHS.length ? delta : -delta;
+            }
+            case 1 -> {
+                int next = pitch + 12 * direction;
+                if(next < lowestPitch || next > highestPitch) next = pitch - 12 * direction;
+                pitch = next;
+            }
+            default -> {
+                int next = nextInKey(pitch, direction);
+                if(next < lowestPitch || next > highestPitch) next = nextInKey(pitch, -direction);
+                pitch = next;
+            }
+        }
+        pitch = Math.max(lowestPitch, Math.min(highestPitch, pitch));
+        return (short) (pitch | lengthCode << Note.LENGTH_SHIFT);
+    }
+
+    /**
+     * @param pitch MIDI pitch
+     * @param direction 1 for up, -1 for down
+     * @return nearest pitch in direction whose pitch class occurs in the target
+     */
+    private int nextInKey(int pitch, int direction){
+        int next = pitch + direction;
+        while(next >= 0 && next <= Note.PITCH_MASK && (keyMask >> next % 12 & 1) == 0){
+            next += direction;
+        }
+        return next;
+    }
+
+    /**
+     * Exchanges two genes of a melody in next population, keeping its fitness up to date
+     * @param child index of melody in next population
+     * @param first locus of one gene
+     * @param second locus of the other gene
+     */
+    private void swapGenes(int child, int first, int second){
+        short gene = nextPopulation.genes.get(child, first);
+        nextPopulation.setGene(child, first, nextPopulation.genes.get(child, second));
+        nextPopulation.setGene(child, second, gene);
+    }
+
     /**
      * Prints statistics of most recent run
      */
@@ -374,20 +1677,41 @@ public class Genetics {
         output.append("Total generations: ").append(generation).append("\n")
               .append("Total execution time: ").append(elapsedTime / 1000000).append("ms").append("\n")
               .append("Final fitness: ").append(best.fitness())
-              .append(" (target: ").append(App.TARGET_MELODY.fitness()).append(")");
+              .append(" (target: ").append(fitnessFunction.maxFitness()).append(")");
+        if(adaptationMethod == AdaptationMethod.HYPERMUTATION)
+            output.append("\n").append("Final mutation likelihood: ").append(currentMutationLikelihood);
+        if(adaptationMethod == AdaptationMethod.RESTART)
+            output.append("\n").append("Restarts: ").append(restarts);
+        if(duplicatePolicy != DuplicatePolicy.ALLOW)
+            output.append("\n").append("Duplicates replaced: ").append(duplicates);
+        if(fitnessCache != null)
+            output.append("\n").append("Fitness cache hits: ").append(getCacheHits())
+                  .append(" (").append(Math.round(100.0 * getCacheHits() / Math.max(1, getCacheHits() + getCacheMisses()))).append("%)");
+        if(timeOperators){
+            //Summed over all workers, so with parallelism this can exceed total execution time
+            long selectionTime = 0, crossoverTime = 0, mutationTime = 0, evaluationTime = 0;
+            for (Worker worker : workers) {
+                selectionTime += worker.selectionTime;
+                crossoverTime += worker.crossoverTime;
+                mutationTime += worker.mutationTime;
+                evaluationTime += worker.evaluationTime;
+            }
+            output.append("\n")
+                  .append("Selection time: ").append(selectionTime / 1000000).append("ms").append("\n")
+                  .append("Crossover time: ").append(crossoverTime / 1000000).append("ms").append("\n")
+                  .append("Mutation time: ").append(mutationTime / 1000000).append("ms").append("\n")
+                  .append("Evaluation time: ").append(evaluationTime / 1000000).append("ms");
+        }
 
         System.out.println(output);
     }
 
     /**
-     * Plays all stored melodies and the final melody
+     * Plays the final melody, blocking until it has been played
+     * Progress during the run is played by adding a PlaybackSink, or exported without blocking by adding a MidiFileSink or MultiTrackMidiSink
      */
     public void playResult() {
         Player player = new Player();
-        for (int i = 0; i < playList.size(); i++) {
-            System.out.printf("Now playing melody %d/%d%n",(i+1), playList.size());
-            player.play(playList.get(i).toString());
-        }
         System.out.println("Now playing final melody");
         player.play(this.best.toString());
     }
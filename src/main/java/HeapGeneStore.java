@@ -0,0 +1,66 @@
+/**
+ * Genes in one flat array on the Java heap, melody i occupying [i*length, (i+1)*length)
+ * Fastest store, limited to 2^31 genes and adding the whole array to the heap the garbage collector traverses
+ */
+class HeapGeneStore implements GeneStore {
+    private final int length;
+    private final short[] genes;
+
+    /**
+     * @param size number of melodies
+     * @param length number of notes of every melody
+     */
+    HeapGeneStore(int size, int length) {
+        this(length, new short[Math.multiplyExact(size, length)]);
+    }
+
+    /**
+     * @param length number of notes of every melody
+     * @param genes genes of all melodies, used without copying
+     */
+    HeapGeneStore(int length, short[] genes) {
+        this.length = length;
+        this.genes = genes;
+    }
+
+    @Override
+    public short get(int index, int locus) {
+        return genes[index * length + locus];
+    }
+
+    @Override
+    public void set(int index, int locus, short gene) {
+        genes[index * length + locus] = gene;
+    }
+
+    @Override
+    public void copy(int index, int locus, GeneStore destination, int destinationIndex, int destinationLocus, int count) {
+        if(destination instanceof HeapGeneStore heap){
+            System.arraycopy(genes, index * length + locus, heap.genes, destinationIndex * heap.length + destinationLocus, count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            destination.set(destinationIndex, destinationLocus + i, genes[index * length + locus + i]);
+        }
+    }
+
+    @Override
+    public void read(int index, short[] genes, int offset) {
+        System.arraycopy(this.genes, index * length, genes, offset, length);
+    }
+
+    @Override
+    public void write(int index, short[] genes, int offset) {
+        System.arraycopy(genes, offset, this.genes, index * length, length);
+    }
+
+    @Override
+    public int rangeFitness(FitnessFunction function, int index, int from, int to) {
+        return function.rangeFitness(genes, index * length, from, to);
+    }
+
+    @Override
+    public void evaluate(FitnessFunction function, int[] fitness, int from, int to) {
+        function.evaluate(genes, fitness, from, to);
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Compares the melodic contour rather than absolute pitches, so a transposed target scores nearly as high as the target itself
+ * Every note after the first earns up to 12 points, one less per semitone the interval from the previous note differs from the target's interval
+ * Lengths are scored as in PitchDistanceFitness
+ * A small absolute pitch bonus keeps the target the only melody with maximum fitness, and lets parts of a melody
+ * evolved at different transpositions drift towards the same one instead of being stuck at equal interval scores
+ */
+class IntervalFitness implements FitnessFunction {
+    /** Absolute pitch closeness, scored as in PitchDistanceFitness, is divided by this */
+    private static final int ABSOLUTE_DIVISOR = 4;
+
+    private final int[] pitches, intervals, lengthCodes;
+
+    IntervalFitness(Melody target) {
+        this.pitches = new int[target.length()];
+        this.intervals = new int[target.length()];
+        this.lengthCodes = new int[target.length()];
+        for (int i = 0; i < target.length(); i++) {
+            pitches[i] = Note.pitch(target.getGene(i));
+            if(i > 0) intervals[i] = Note.pitch(target.getGene(i)) - Note.pitch(target.getGene(i - 1));
+            lengthCodes[i] = (target.getGene(i) & Note.LENGTH_MASK) >> Note.LENGTH_SHIFT;
+        }
+    }
+
+    @Override
+    public int length() {
+        return intervals.length;
+    }
+
+    @Override
+    public int maxFitness() {
+        return PitchDistanceFitness.PITCH_POINTS * (intervals.length - 1)
+                + (PitchDistanceFitness.PITCH_POINTS / ABSOLUTE_DIVISOR + PitchDistanceFitness.LENGTH_POINTS) * intervals.length;
+    }
+
+    @Override
+    public int noteFitness(short previous, short note, int index) {
+        int fitness = PitchDistanceFitness.lengthScore(note, lengthCodes[index])
+                + PitchDistanceFitness.pitchScore(note & Note.PITCH_MASK, pitches[index]) / ABSOLUTE_DIVISOR;
+        if(index > 0)
+            fitness += PitchDistanceFitness.pitchScore((note & Note.PITCH_MASK) - (previous & Note.PITCH_MASK), intervals[index]);
+        return fitness;
+    }
+
+    @Override
+    public boolean dependsOnPrevious() {
+        return true;
+    }
+}
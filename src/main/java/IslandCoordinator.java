@@ -0,0 +1,360 @@
+import enums.MigrationTopology;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distributed counterpart of IslandModel: every island is an IslandWorker in its own process, possibly on another machine
+ * The coordinator waits for all workers to connect, then repeatedly lets every island evolve migrationInterval generations
+ * and migrates the fittest melodies between islands, until any island meets its end condition
+ * All connections are served by a single thread through non-blocking channels, see {@link IslandProtocol} for the frames exchanged
+ */
+public class IslandCoordinator {
+    public static class Builder{
+        private SocketAddress address;
+        private int workers;
+        private int migrationInterval = 100;
+        private int migrationCount = 1;
+        private MigrationTopology topology = MigrationTopology.RING;
+        private long seed = ThreadLocalRandom.current().nextLong();
+
+        /**
+         * Address workers connect to, must be set
+         * @param address InetSocketAddress for TCP or UnixDomainSocketAddress for a socket file on this machine
+         */
+        public Builder address(SocketAddress address){
+            this.address = address;
+            return this;
+        }
+
+        /**
+         * Number of workers the run waits for before it starts, must be set
+         * @param workers positive Integer
+         */
+        public Builder workers(int workers){
+            if(workers < 1)
+                throw new IllegalArgumentException("Number of workers must be positive");
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Number of generations every island evolves on its own between two migrations
+         * Every migration is a round trip to all workers, so distant workers need a longer interval
+         * @param migrationInterval positive Integer
+         */
+        public Builder migrationInterval(int migrationInterval){
+            if(migrationInterval < 1)
+                throw new IllegalArgumentException("Migration interval must be positive");
+            this.migrationInterval = migrationInterval;
+            return this;
+        }
+
+        /**
+         * Number of the best chromosomes each island sends out on migration, replacing the worst ones of the receiving island
+         * @param migrationCount non-negative Integer
+         */
+        public Builder migrationCount(int migrationCount){
+            if(migrationCount < 0)
+                throw new IllegalArgumentException("Migration count must not be negative");
+            this.migrationCount = migrationCount;
+            return this;
+        }
+
+        /**
+         * Which island receives migrants of another island, islands are numbered in order of connecting
+         * MigrationTopology.RING -> island i sends migrants to island i+1, last island sends to first
+         * MigrationTopology.RANDOM -> every migration each island sends migrants to a random other island
+         * @param topology
+         */
+        public Builder topology(MigrationTopology topology){
+            this.topology = topology;
+            return this;
+        }
+
+        /**
+         * Seed for picking destinations of RANDOM topology, random if not set
+         * @param seed
+         */
+        public Builder seed(long seed){
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Creates an IslandCoordinator object with parameters set through Pattern Builder
+         * @return IslandCoordinator object
+         */
+        public IslandCoordinator build(){
+            if(address == null)
+                throw new IllegalStateException("Address must be set");
+            if(workers == 0)
+                throw new IllegalStateException("Number of workers must be set");
+            IslandCoordinator coordinator = new IslandCoordinator();
+            coordinator.address = this.address;
+            coordinator.workers = this.workers;
+            coordinator.migrationInterval = this.migrationInterval;
+            coordinator.migrationCount = this.migrationCount;
+            coordinator.topology = this.topology;
+            coordinator.random = new SplittableRandom(this.seed);
+            return coordinator;
+        }
+    }
+
+    /**
+     * State of one connected worker
+     */
+    private static class Connection {
+        private final int index;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final IslandProtocol.Inbox inbox = new IslandProtocol.Inbox();
+        private final Deque<ByteBuffer> outbox = new ArrayDeque<>();
+        /** Frame answering the current request, null until it arrives */
+        private IslandProtocol.Frame received;
+        private int length, maxFitness;
+        private long targetHash;
+        /** Name of built-in fitness function, empty for a custom one */
+        private String fitnessMethod;
+        private int generation, bestFitness;
+        private boolean finished;
+        private List<Melody> emigrants = List.of();
+        private Melody best;
+
+        private Connection(int index, SocketChannel channel, SelectionKey key) {
+            this.index = index;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        /**
+         * Writes queued frames until they are sent or the socket buffer is full
+         */
+        private void flush() throws IOException {
+            while(!outbox.isEmpty()){
+                channel.write(outbox.peek());
+                if(outbox.peek().hasRemaining()) return;
+                outbox.poll();
+            }
+        }
+    }
+
+    private SocketAddress address;
+    private int workers;
+    private int migrationInterval, migrationCount;
+    private MigrationTopology topology;
+    private SplittableRandom random;
+    private final List<Connection> connections = new ArrayList<>();
+    private int migrations;
+    private long elapsedTime;
+    private Connection best;
+
+    private IslandCoordinator(){}
+
+    /**
+     * Waits for all workers to connect, then runs the islands until one of them meets its end condition
+     * @throws UncheckedIOException if the address cannot be bound or a worker goes away
+     * @throws IllegalStateException if workers evolve towards different targets or score melodies with different fitness methods
+     */
+    public void run(){
+        connections.clear();
+        migrations = 0;
+        long startTime = System.nanoTime();
+        try (Selector selector = Selector.open();
+             ServerSocketChannel server = address instanceof UnixDomainSocketAddress ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open()) {
+            server.bind(address);
+            server.configureBlocking(false);
+            accept(selector, server);
+            exchange(selector, IslandProtocol.HELLO);
+            for (Connection connection : connections) {
+                ByteBuffer hello = connection.received.payload();
+                if(hello.getInt() != IslandProtocol.VERSION)
+                    throw new IOException("Worker " + (connection.index + 1) + " speaks another protocol version");
+                connection.length = hello.getInt();
+                connection.maxFitness = hello.getInt();
+                connection.targetHash = hello.getLong();
+                byte[] fitnessMethod = new byte[hello.get()];
+                hello.get(fitnessMethod);
+                connection.fitnessMethod = new String(fitnessMethod, StandardCharsets.US_ASCII);
+            }
+            //Migrants and best melodies of islands are only comparable if all islands score the same target the same way
+            if(connections.stream().mapToInt(connection -> connection.length).distinct().count() > 1)
+                throw new IllegalStateException("All islands must evolve towards targets of the same length");
+            if(connections.stream().mapToLong(connection -> connection.targetHash).distinct().count() > 1)
+                throw new IllegalStateException("All islands must evolve towards the same target");
+            if(connections.stream().map(connection -> connection.fitnessMethod + "/" + connection.maxFitness).distinct().count() > 1)
+                throw new IllegalStateException("All islands must score melodies with the same fitness method");
+
+            List<List<Melody>> migrants = Collections.nCopies(workers, List.of());
+            boolean exitCondition = false;
+            while(!exitCondition){
+                //Islands evolve independently until next migration
+                for (Connection connection : connections) {
+                    List<Melody> immigrants = migrants.get(connection.index);
+                    ByteBuffer run = IslandProtocol.frame(IslandProtocol.RUN, 8 + IslandProtocol.melodiesSize(immigrants))
+                            .putInt(migrationInterval).putInt(migrationCount);
+                    IslandProtocol.putMelodies(run, immigrants);
+                    connection.outbox.add(IslandProtocol.finish(run));
+                }
+                exchange(selector, IslandProtocol.PROGRESS);
+                for (Connection connection : connections) {
+                    ByteBuffer progress = connection.received.payload();
+                    connection.generation = progress.getInt();
+                    connection.bestFitness = progress.getInt();
+                    connection.finished = progress.get() != 0;
+                    connection.emigrants = IslandProtocol.getMelodies(progress);
+                }
+                exitCondition = connections.stream().anyMatch(connection -> connection.finished);
+                if(!exitCondition && workers > 1 && migrationCount > 0) migrants = migrate();
+                else migrants = Collections.nCopies(workers, List.of());
+            }
+
+            for (Connection connection : connections) {
+                connection.outbox.add(IslandProtocol.finish(IslandProtocol.frame(IslandProtocol.STOP, 0)));
+            }
+            exchange(selector, IslandProtocol.RESULT);
+            for (Connection connection : connections) {
+                ByteBuffer result = connection.received.payload();
+                connection.generation = result.getInt();
+                connection.best = IslandProtocol.getMelodies(result).get(0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.channel.close();
+                } catch (IOException ignored) {
+                    //Connection is abandoned either way
+                }
+            }
+            if(address instanceof UnixDomainSocketAddress socket){
+                try {
+                    Files.deleteIfExists(socket.getPath());
+                } catch (IOException ignored) {
+                    //A stale socket file only fails the next bind, with a clear message
+                }
+            }
+        }
+        best = connections.stream().max(Comparator.comparingInt(connection -> connection.best.fitness())).get();
+
+        elapsedTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Accepts connections until all workers are connected, then stops listening
+     */
+    private void accept(Selector selector, ServerSocketChannel server) throws IOException {
+        SelectionKey serverKey = server.register(selector, SelectionKey.OP_ACCEPT);
+        while(connections.size() < workers){
+            selector.select();
+            selector.selectedKeys().clear();
+            SocketChannel channel;
+            while(connections.size() < workers && (channel = server.accept()) != null){
+                channel.configureBlocking(false);
+                //Not interested in anything until the first exchange
+                SelectionKey key = channel.register(selector, 0);
+                Connection connection = new Connection(connections.size(), channel, key);
+                key.attach(connection);
+                connections.add(connection);
+            }
+        }
+        serverKey.cancel();
+    }
+
+    /**
+     * Sends every worker its queued frames and waits until every worker has answered with a frame of given type
+     * @param selector selector all connections are registered with
+     * @param type type of the expected answer
+     */
+    private void exchange(Selector selector, byte type) throws IOException {
+        int pending = connections.size();
+        for (Connection connection : connections) {
+            connection.received = null;
+            connection.key.interestOps(SelectionKey.OP_READ | (connection.outbox.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+        while(pending > 0){
+            selector.select();
+            for (SelectionKey key : selector.selectedKeys()) {
+                Connection connection = (Connection) key.attachment();
+                if(key.isWritable()) connection.flush();
+                boolean closed = key.isReadable() && connection.inbox.read(connection.channel) < 0;
+                IslandProtocol.Frame frame = connection.inbox.next();
+                if(frame != null){
+                    if(frame.type() != type || connection.received != null)
+                        throw new IOException("Unexpected frame of type " + frame.type() + " from worker " + (connection.index + 1));
+                    connection.received = frame;
+                    pending--;
+                }
+                //A worker closes its connection right after its result, which may arrive together with it
+                if(closed && connection.received == null)
+                    throw new IOException("Worker " + (connection.index + 1) + " disconnected");
+                key.interestOps(closed ? 0 : SelectionKey.OP_READ | (connection.outbox.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+            }
+            selector.selectedKeys().clear();
+        }
+        for (Connection connection : connections) {
+            connection.key.interestOps(0);
+        }
+    }
+
+    /**
+     * Routes the emigrants every island reported to their destination according to topology
+     * @return migrants for every island, by index of island
+     */
+    private List<List<Melody>> migrate(){
+        List<List<Melody>> migrants = new ArrayList<>(Collections.nCopies(workers, List.of()));
+        for (int i = 0; i < workers; i++) {
+            int destination = switch(topology){
+                case RING -> (i + 1) % workers;
+                case RANDOM -> {
+                    int other = random.nextInt(workers - 1);
+                    yield other >= i ? other + 1 : other;
+                }
+            };
+            List<Melody> arriving = new ArrayList<>(migrants.get(destination));
+            arriving.addAll(connections.get(i).emigrants);
+            migrants.set(destination, arriving);
+        }
+        migrations++;
+        return migrants;
+    }
+
+    /**
+     * @return fittest melody found by any island in the most recent run
+     */
+    public Melody getBest() {
+        return best.best;
+    }
+
+    /**
+     * Prints statistics of most recent run
+     */
+    public void statistics(){
+        StringBuilder output = new StringBuilder();
+        output.append("Workers: ").append(workers).append("\n")
+              .append("Migrations: ").append(migrations).append("\n")
+              .append("Total execution time: ").append(elapsedTime / 1000000).append("ms").append("\n");
+        for (Connection connection : connections) {
+            output.append("Worker ").append(connection.index + 1).append(": ")
+                  .append(connection.generation).append(" generations, fitness ")
+                  .append(connection.best.fitness()).append("\n");
+        }
+        output.append("Final fitness: ").append(best.best.fitness())
+              .append(" (target: ").append(best.maxFitness).append(")");
+
+        System.out.println(output);
+    }
+}
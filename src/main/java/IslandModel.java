@@ -0,0 +1,206 @@
+import enums.MigrationTopology;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Evolves several independent Genetics populations (islands) at the same time,
+ * periodically migrating the fittest melodies of every island to another island
+ */
+public class IslandModel {
+    public static class Builder{
+        private final List<Genetics> islands = new ArrayList<>();
+        private int migrationInterval = 100;
+        private int migrationCount = 1;
+        private MigrationTopology topology = MigrationTopology.RING;
+        private long seed = ThreadLocalRandom.current().nextLong();
+
+        /**
+         * Adds an island, each island can use its own selection, crossover and mutation methods but must share the target and fitness method
+         * The run ends as soon as any island meets its end condition
+         * @param genetics island population, built but not yet run
+         */
+        public Builder island(Genetics genetics){
+            islands.add(genetics);
+            return this;
+        }
+
+        /**
+         * Number of generations every island evolves on its own between two migrations
+         * @param migrationInterval positive Integer
+         */
+        public Builder migrationInterval(int migrationInterval){
+            if(migrationInterval < 1)
+                throw new IllegalArgumentException("Migration interval must be positive");
+            this.migrationInterval = migrationInterval;
+            return this;
+        }
+
+        /**
+         * Number of the best chromosomes each island sends out on migration, replacing the worst ones of the receiving island
+         * @param migrationCount non-negative Integer
+         */
+        public Builder migrationCount(int migrationCount){
+            if(migrationCount < 0)
+                throw new IllegalArgumentException("Migration count must not be negative");
+            this.migrationCount = migrationCount;
+            return this;
+        }
+
+        /**
+         * Which island receives migrants of another island
+         * MigrationTopology.RING -> island i sends migrants to island i+1, last island sends to first
+         * MigrationTopology.RANDOM -> every migration each island sends migrants to a random other island
+         * @param topology
+         */
+        public Builder topology(MigrationTopology topology){
+            this.topology = topology;
+            return this;
+        }
+
+        /**
+         * Seed for picking destinations of RANDOM topology, random if not set
+         * @param seed
+         */
+        public Builder seed(long seed){
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Creates an IslandModel object with parameters set through Pattern Builder
+         * @return IslandModel object
+         * @throws IllegalStateException if no island was added or islands evolve towards different targets or score them differently
+         */
+        public IslandModel build(){
+            if(islands.isEmpty())
+                throw new IllegalStateException("At least one island must be added");
+            //Migrants and best melodies of islands are only comparable if all islands score the same target the same way
+            Genetics first = islands.get(0);
+            for (Genetics island : islands) {
+                if(island.getTarget().length() != first.getTarget().length())
+                    throw new IllegalStateException("All islands must evolve towards targets of the same length");
+                if(!Arrays.equals(island.getTarget().getGenes(), first.getTarget().getGenes()))
+                    throw new IllegalStateException("All islands must evolve towards the same target");
+                if(island.getFitnessMethod() != first.getFitnessMethod()
+                        || island.getFitnessFunction().maxFitness() != first.getFitnessFunction().maxFitness())
+                    throw new IllegalStateException("All islands must score melodies with the same fitness method");
+            }
+            IslandModel islandModel = new IslandModel();
+            islandModel.islands = List.copyOf(this.islands);
+            islandModel.migrationInterval = this.migrationInterval;
+            islandModel.migrationCount = this.migrationCount;
+            islandModel.topology = this.topology;
+            islandModel.random = new SplittableRandom(this.seed);
+            return islandModel;
+        }
+    }
+
+    private List<Genetics> islands;
+    private int migrationInterval, migrationCount;
+    private MigrationTopology topology;
+    private SplittableRandom random;
+    private int migrations;
+    private long elapsedTime;
+    private Genetics best;
+
+    private IslandModel(){}
+
+    /**
+     * Runs all islands, each on its own thread, until one of them meets its end condition
+     */
+    public void run(){
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(islands.size());
+        try {
+            invokeAll(executor, island -> island.initialize());
+            boolean exitCondition = false;
+            while(!exitCondition){
+                //Islands evolve independently until next migration
+                invokeAll(executor, island -> {
+                    for (int i = 0; i < migrationInterval && !island.isFinished(); i++) {
+                        island.step();
+                    }
+                });
+                exitCondition = islands.stream().anyMatch(Genetics::isFinished);
+                if(!exitCondition && islands.size() > 1 && migrationCount > 0) migrate();
+            }
+        } finally {
+            islands.forEach(Genetics::finish);
+            executor.shutdown();
+        }
+        best = islands.stream().max(Comparator.comparingInt(island -> island.getBest().fitness())).get();
+
+        elapsedTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Runs task for every island concurrently and waits for all of them to complete
+     */
+    private void invokeAll(ExecutorService executor, Consumer<Genetics> task){
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Genetics island : islands) {
+            tasks.add(() -> {
+                task.accept(island);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Island run was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Island failed", e.getCause());
+        }
+    }
+
+    /**
+     * Sends the best migrationCount melodies of every island to its destination according to topology
+     * All emigrants are collected before any island receives migrants, so order of islands does not matter
+     */
+    private void migrate(){
+        List<List<Melody>> emigrants = islands.stream().map(island -> island.emigrants(migrationCount)).toList();
+        for (int i = 0; i < islands.size(); i++) {
+            int destination = switch(topology){
+                case RING -> (i + 1) % islands.size();
+                case RANDOM -> {
+                    int other = random.nextInt(islands.size() - 1);
+                    yield other >= i ? other + 1 : other;
+                }
+            };
+            islands.get(destination).immigrate(emigrants.get(i));
+        }
+        migrations++;
+    }
+
+    /**
+     * Prints statistics of most recent run
+     */
+    public void statistics(){
+        StringBuilder output = new StringBuilder();
+        output.append("Islands: ").append(islands.size()).append("\n")
+              .append("Migrations: ").append(migrations).append("\n")
+              .append("Total execution time: ").append(elapsedTime / 1000000).append("ms").append("\n");
+        for (int i = 0; i < islands.size(); i++) {
+            Genetics island = islands.get(i);
+            output.append("Island ").append(i + 1).append(": ")
+                  .append(island.getGeneration()).append(" generations, fitness ")
+                  .append(island.getBest().fitness()).append("\n");
+        }
+        output.append("Final fitness: ").append(best.getBest().fitness())
+              .append(" (target: ").append(best.getFitnessFunction().maxFitness()).append(")");
+
+        System.out.println(output);
+    }
+
+    /**
+     * Plays the final melody of the island that found the best melody
+     */
+    public void playResult(){
+        best.playResult();
+    }
+}
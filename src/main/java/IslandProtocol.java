@@ -0,0 +1,185 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary protocol spoken between an IslandCoordinator and its IslandWorkers
+ *
+ * Every frame is a big endian int length of its payload, a byte type and the payload
+ * HELLO    worker -> coordinator: protocol version, melody length, max fitness, target hash,
+ *          fitness method as a byte length and ASCII name, empty for a custom fitness function
+ * RUN      coordinator -> worker: number of generations to evolve, migrants to take in first
+ * PROGRESS worker -> coordinator: generation, best fitness, whether the end condition is met, emigrants
+ * STOP     coordinator -> worker: no payload, the worker finishes its run
+ * RESULT   worker -> coordinator: generation, best melody
+ * Melodies are sent as a count followed by fitness, number of notes and packed notes of every melody
+ */
+final class IslandProtocol {
+    static final int VERSION = 2;
+    static final byte HELLO = 1, RUN = 2, PROGRESS = 3, STOP = 4, RESULT = 5;
+    /** Length and type */
+    static final int HEADER_SIZE = 5;
+    /** Larger frames are taken for a corrupted stream rather than allocated */
+    static final int MAX_PAYLOAD = 1 << 26;
+
+    private IslandProtocol(){}
+
+    /**
+     * Received frame
+     * @param type one of the frame type constants
+     * @param payload contents of frame, positioned at its start
+     */
+    record Frame(byte type, ByteBuffer payload) {
+    }
+
+    /**
+     * @param type frame type
+     * @param payloadSize maximum size of payload
+     * @return buffer with header space reserved, to be filled with payload and passed to finish
+     */
+    static ByteBuffer frame(byte type, int payloadSize){
+        return ByteBuffer.allocate(HEADER_SIZE + payloadSize).putInt(0).put(type);
+    }
+
+    /**
+     * Writes payload length into header and flips the frame for writing to a channel
+     * @param frame buffer created by frame(), filled with payload
+     * @return frame
+     */
+    static ByteBuffer finish(ByteBuffer frame){
+        frame.putInt(0, frame.position() - HEADER_SIZE);
+        return frame.flip();
+    }
+
+    /**
+     * @param melodies melodies to send
+     * @return bytes putMelodies writes for melodies
+     */
+    static int melodiesSize(List<Melody> melodies){
+        int size = 4;
+        for (Melody melody : melodies) {
+            size += 8 + 2 * melody.length();
+        }
+        return size;
+    }
+
+    static void putMelodies(ByteBuffer buffer, List<Melody> melodies){
+        buffer.putInt(melodies.size());
+        for (Melody melody : melodies) {
+            buffer.putInt(melody.fitness()).putInt(melody.length());
+            buffer.asShortBuffer().put(melody.getGenes());
+            buffer.position(buffer.position() + 2 * melody.length());
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a target's packed notes, so islands can check they evolve towards the same melody without sending it
+     * @param target target melody
+     * @return hash of its genes
+     */
+    static long targetHash(Melody target){
+        long hash = 0xCBF29CE484222325L;
+        for (short gene : target.getGenes()) {
+            hash = (hash ^ gene & 0xFFFF) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    static List<Melody> getMelodies(ByteBuffer buffer){
+        int count = buffer.getInt();
+        List<Melody> melodies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int fitness = buffer.getInt();
+            short[] genes = new short[buffer.getInt()];
+            buffer.asShortBuffer().get(genes);
+            buffer.position(buffer.position() + 2 * genes.length);
+            melodies.add(new Melody(genes, fitness));
+        }
+        return melodies;
+    }
+
+    /**
+     * Takes the next complete frame out of bytes received so far
+     * @param buffer received bytes in read mode, left positioned after the returned frame
+     * @return frame with a copy of its payload, null if the buffer does not hold a complete frame yet
+     * @throws IOException if the frame is larger than MAX_PAYLOAD
+     */
+    static Frame next(ByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < HEADER_SIZE) return null;
+        int size = buffer.getInt(buffer.position());
+        if(size < 0 || size > MAX_PAYLOAD)
+            throw new IOException("Invalid frame of " + size + " bytes");
+        if(buffer.remaining() < HEADER_SIZE + size) return null;
+        byte type = buffer.get(buffer.position() + 4);
+        buffer.position(buffer.position() + HEADER_SIZE);
+        ByteBuffer payload = ByteBuffer.allocate(size).put(buffer.slice(buffer.position(), size)).flip();
+        buffer.position(buffer.position() + size);
+        return new Frame(type, payload);
+    }
+
+    /**
+     * Bytes received from one connection, from which complete frames are taken as they arrive
+     */
+    static final class Inbox {
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        /**
+         * Reads whatever the channel has, growing the buffer if a frame does not fit
+         * @param channel blocking or non-blocking channel
+         * @return number of bytes read, -1 at end of stream
+         */
+        int read(ReadableByteChannel channel) throws IOException {
+            if(!buffer.hasRemaining())
+                buffer = ByteBuffer.allocate(2 * buffer.capacity()).put(buffer.flip());
+            return channel.read(buffer);
+        }
+
+        /**
+         * @return next complete frame, null if it has not fully arrived yet
+         * @throws IOException if the frame is larger than MAX_PAYLOAD
+         */
+        Frame next() throws IOException {
+            buffer.flip();
+            try {
+                return IslandProtocol.next(buffer);
+            } finally {
+                buffer.compact();
+            }
+        }
+
+        /**
+         * Waits for the next frame on a blocking channel
+         * @param channel blocking channel
+         * @return next frame
+         * @throws IOException if the channel is closed before a complete frame arrives
+         */
+        Frame take(ReadableByteChannel channel) throws IOException {
+            Frame frame = next();
+            while(frame == null){
+                if(read(channel) < 0)
+                    throw new EOFException("Connection closed");
+                frame = next();
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * Parses an address given on the command line
+     * @param address host:port, port alone for any local address, or path of a Unix domain socket
+     * @return socket address
+     */
+    static SocketAddress parseAddress(String address){
+        int colon = address.lastIndexOf(':');
+        String port = address.substring(colon + 1);
+        if(!port.isEmpty() && port.chars().allMatch(Character::isDigit))
+            return colon < 0 ? new InetSocketAddress(Integer.parseInt(port)) : new InetSocketAddress(address.substring(0, colon), Integer.parseInt(port));
+        return UnixDomainSocketAddress.of(address);
+    }
+}
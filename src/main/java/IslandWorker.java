@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Evolves one island of a distributed run in this process, on behalf of an IslandCoordinator that may run on another machine
+ * The coordinator decides how many generations the island evolves between migrations and which migrants it takes in,
+ * the island reports its progress and fittest melodies back, see {@link IslandProtocol}
+ */
+public class IslandWorker {
+    private final Genetics genetics;
+    private final SocketAddress coordinator;
+
+    /**
+     * @param genetics island population, built but not yet run; its end condition ends the whole distributed run
+     * @param coordinator address the coordinator listens on, host and port or a Unix domain socket
+     */
+    public IslandWorker(Genetics genetics, SocketAddress coordinator) {
+        this.genetics = genetics;
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Connects to the coordinator and evolves the island until the coordinator ends the run
+     * @throws UncheckedIOException if the connection fails or the coordinator goes away
+     */
+    public void run(){
+        boolean finished = false;
+        try (SocketChannel channel = SocketChannel.open(coordinator)) {
+            byte[] fitnessMethod = genetics.getFitnessMethod() == null ? new byte[0]
+                    : genetics.getFitnessMethod().name().getBytes(StandardCharsets.US_ASCII);
+            ByteBuffer hello = IslandProtocol.frame(IslandProtocol.HELLO, 21 + fitnessMethod.length).putInt(IslandProtocol.VERSION)
+                    .putInt(genetics.getTarget().length()).putInt(genetics.getFitnessFunction().maxFitness())
+                    .putLong(IslandProtocol.targetHash(genetics.getTarget())).put((byte) fitnessMethod.length).put(fitnessMethod);
+            write(channel, IslandProtocol.finish(hello));
+            genetics.initialize();
+            IslandProtocol.Inbox inbox = new IslandProtocol.Inbox();
+            while(!finished){
+                IslandProtocol.Frame frame = inbox.take(channel);
+                ByteBuffer payload = frame.payload();
+                switch(frame.type()){
+                    case IslandProtocol.RUN -> {
+                        int generations = payload.getInt(), emigrantCount = payload.getInt();
+                        List<Melody> migrants = IslandProtocol.getMelodies(payload);
+                        if(!migrants.isEmpty()) genetics.immigrate(migrants);
+                        for (int i = 0; i < generations && !genetics.isFinished(); i++) {
+                            genetics.step();
+                        }
+                        List<Melody> emigrants = genetics.emigrants(emigrantCount);
+                        ByteBuffer progress = IslandProtocol.frame(IslandProtocol.PROGRESS, 9 + IslandProtocol.melodiesSize(emigrants))
+                                .putInt(genetics.getGeneration()).putInt(genetics.getBestFitness())
+                                .put((byte) (genetics.isFinished() ? 1 : 0));
+                        IslandProtocol.putMelodies(progress, emigrants);
+                        write(channel, IslandProtocol.finish(progress));
+                    }
+                    case IslandProtocol.STOP -> {
+                        genetics.finish();
+                        finished = true;
+                        List<Melody> best = List.of(genetics.getBest());
+                        ByteBuffer result = IslandProtocol.frame(IslandProtocol.RESULT, 4 + IslandProtocol.melodiesSize(best))
+                                .putInt(genetics.getGeneration());
+                        IslandProtocol.putMelodies(result, best);
+                        write(channel, IslandProtocol.finish(result));
+                    }
+                    default -> throw new IOException("Unexpected frame of type " + frame.type() + " from coordinator");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if(!finished) genetics.finish();
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer frame) throws IOException {
+        while(frame.hasRemaining()){
+            channel.write(frame);
+        }
+    }
+}
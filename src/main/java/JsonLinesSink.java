@@ -0,0 +1,48 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes every snapshot as one JSON object per line, flushed after each line so the file can be followed while the run is going
+ */
+public class JsonLinesSink implements MelodySink {
+    private final BufferedWriter writer;
+
+    /**
+     * @param path file to write to, replaced if it exists
+     */
+    public JsonLinesSink(Path path) {
+        try {
+            this.writer = Files.newBufferedWriter(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(MelodySnapshot snapshot) {
+        try {
+            //Melody string only contains MIDI numbers, length letters and spaces, so it needs no escaping
+            writer.write("{\"generation\":" + snapshot.generation()
+                    + ",\"fitness\":" + snapshot.melody().fitness()
+                    + ",\"maxFitness\":" + snapshot.maxFitness()
+                    + ",\"elapsedTime\":" + snapshot.elapsedTime()
+                    + ",\"melody\":\"" + snapshot.melody() + "\"}");
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
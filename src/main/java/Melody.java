@@ -1,41 +1,159 @@
+import java.util.AbstractList;
 import java.util.List;
 
+/**
+ * Describes a melody as an array of packed notes (genes), see {@link Note#pack(int, char)}
+ */
 public class Melody {
-    private List<Note> notes;
+    private final short[] genes;
+    /** Fitness against the target of the run that produced this melody, -1 if not evaluated */
+    private int fitness = -1;
 
-    public Melody(List<Note> notes) {
-        this.notes = notes;
+    public Melody(short[] genes) {
+        this.genes = genes;
     }
 
     /**
-     * Compares MIDI number and length of each note with its counterpart in target melody
-     * @return value in range [0, 2*MELODY_LENGTH]
-     */
-    public Integer fitness(){
-        int fitness = 0;
-        //Compare each note individually
-        for (int i = 0; i < App.MELODY_LENGTH; i++) {
-            if(this.getNotes().get(i).getNote().equals(App.TARGET_MELODY.getNotes().get(i).getNote()))
-                fitness++;
-            if(this.getNotes().get(i).getLength().equals(App.TARGET_MELODY.getNotes().get(i).getLength()))
-                fitness++;
+     * Creates a melody whose fitness is already known, e.g. copied out of a population
+     * @param genes packed notes
+     * @param fitness fitness of genes
+     */
+    Melody(short[] genes, int fitness) {
+        this.genes = genes;
+        this.fitness = fitness;
+    }
+
+    public Melody(List<Note> notes) {
+        this.genes = new short[notes.size()];
+        for (int i = 0; i < genes.length; i++) {
+            genes[i] = notes.get(i).getGene();
         }
+    }
+
+    /**
+     * Fitness assigned by the genetic algorithm run that produced this melody, under that run's fitness function
+     * @return value in range [0, maxFitness of the fitness function]
+     * @throws IllegalStateException if the melody was not evaluated, see {@link #fitness(Melody)}
+     */
+    public int fitness(){
+        if(fitness < 0)
+            throw new IllegalStateException("Melody has not been evaluated against a target");
         return fitness;
     }
 
-    public List<Note> getNotes() {
-        return notes;
+    /**
+     * Compares MIDI number and length of each note with its counterpart in target melody
+     * @param target melody of the same length
+     * @return value in range [0, 2*target length]
+     */
+    public int fitness(Melody target){
+        if(target.length() != length())
+            throw new IllegalArgumentException("Target melody must have the same length");
+        return rangeFitness(genes, 0, target.genes, 0, length());
+    }
+
+    /**
+     * Scores this melody with a fitness function
+     * @param function fitness function for a target of the same length
+     * @return value in range [0, function.maxFitness()]
+     */
+    public int fitness(FitnessFunction function){
+        if(function.length() != length())
+            throw new IllegalArgumentException("Target melody must have the same length");
+        return function.rangeFitness(genes, 0, 0, length());
+    }
+
+    /**
+     * @return highest fitness any melody can have against this melody as target when compared by {@link #fitness(Melody)}
+     */
+    public int maxFitness(){
+        return 2 * length();
+    }
+
+    /**
+     * Fitness contributed by genes in range [from, to)
+     * @param genes packed notes
+     * @param offset position of the melody's first note in genes
+     * @param target packed notes of target melody
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return value in range [0, 2*(to-from)]
+     */
+    static int rangeFitness(short[] genes, int offset, short[] target, int from, int to){
+        return FitnessKernel.INSTANCE.rangeFitness(genes, offset, target, from, to);
     }
 
-    public void setNotes(List<Note> notes) {
-        this.notes = notes;
+    /**
+     * @return melody with its own copy of genes and the same cached fitness
+     */
+    public Melody copy() {
+        return new Melody(genes.clone(), fitness);
+    }
+
+    /**
+     * @return packed notes backing this melody, changes must go through {@link #setGene(int, short)} to keep fitness valid
+     */
+    public short[] getGenes() {
+        return genes;
+    }
+
+    public int length() {
+        return genes.length;
+    }
+
+    public short getGene(int index) {
+        return genes[index];
+    }
+
+    /**
+     * Replaces a single gene, the melody then needs to be evaluated again
+     * @param index position of gene
+     * @param gene new packed note
+     */
+    public void setGene(int index, short gene) {
+        fitness = -1;
+        genes[index] = gene;
+    }
+
+    /**
+     * @param gene packed note
+     * @param target packed note of target melody at the same position
+     * @return fitness contributed by a single note, in range [0, 2]
+     */
+    static int geneFitness(short gene, short target){
+        int difference = gene ^ target;
+        return ((difference & Note.PITCH_MASK) == 0 ? 1 : 0) + ((difference & Note.LENGTH_MASK) == 0 ? 1 : 0);
+    }
+
+    /**
+     * @return list view of notes backed by this melody
+     */
+    public List<Note> getNotes() {
+        return new AbstractList<>() {
+            @Override
+            public Note get(int index) {
+                return new Note(genes[index]);
+            }
+
+            @Override
+            public Note set(int index, Note note) {
+                Note previous = get(index);
+                setGene(index, note.getGene());
+                return previous;
+            }
+
+            @Override
+            public int size() {
+                return genes.length;
+            }
+        };
     }
 
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
-        for(Note note : notes){
-            result.append(note.toString()).append(" ");
+        for(short gene : genes){
+            result.append(Note.pitch(gene)).append(Note.length(gene)).append(" ");
         }
         result.deleteCharAt(result.length()-1);
         return result.toString();
@@ -0,0 +1,27 @@
+/**
+ * Thrown when text cannot be parsed into notes, carrying where parsing failed
+ */
+public class MelodyParseException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line, column;
+
+    /**
+     * @param message what is wrong
+     * @param line line number, starting at 1
+     * @param column column number, starting at 1
+     */
+    public MelodyParseException(String message, int line, int column) {
+        super("Line " + line + ", column " + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+}
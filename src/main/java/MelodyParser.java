@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Single pass parser of melodies in English notation, e.g. "E D C D Eh G5 F#i", writing notes straight into packed genes
+ * A note is a name A-G followed in any order by at most one octave digit (5 if omitted), at most one length w, h, q, i or s (q if omitted)
+ * and at most one modifier, # or b; notes are separated by any amount of spaces or tabs
+ * Characters are classified with lookup tables, so parsing allocates nothing but the genes of every melody
+ * Files hold one melody per line, blank lines and lines starting with # are skipped
+ */
+public final class MelodyParser {
+    private static final int DEFAULT_OCTAVE = 5;
+    private static final int DEFAULT_LENGTH_CODE = 2;
+    /** Size of the buffer files are read through, grown if a single line does not fit */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private MelodyParser(){}
+
+    /**
+     * @param input notes of a single melody
+     * @return Melody object
+     * @throws MelodyParseException if input is empty or contains anything but notes
+     */
+    public static Melody parseMelody(CharSequence input){
+        Genes genes = new Genes();
+        parseLine(input, 0, input.length(), 1, genes);
+        if(genes.count == 0)
+            throw new MelodyParseException("Melody has no notes", 1, 1);
+        return new Melody(genes.toArray());
+    }
+
+    /**
+     * @param input a single note
+     * @return packed note, see {@link Note#pack(int, char)}
+     * @throws MelodyParseException if input is not exactly one note
+     */
+    public static short parseNote(CharSequence input){
+        Genes genes = new Genes();
+        parseLine(input, 0, input.length(), 1, genes);
+        if(genes.count != 1)
+            throw new MelodyParseException("Expected a single note", 1, 1);
+        return genes.values[0];
+    }
+
+    /**
+     * Reads all melodies of a file
+     * @param path file with one melody per line
+     * @return melodies in order of lines
+     * @throws MelodyParseException with line and column of the first error
+     */
+    public static List<Melody> parseFile(Path path){
+        List<Melody> melodies = new ArrayList<>();
+        parseFile(path, melodies::add);
+        return melodies;
+    }
+
+    /**
+     * Streams melodies of a file to a consumer as they are parsed, without holding the whole file in memory
+     * @param path file with one melody per line
+     * @param consumer receives every melody in order of lines
+     * @throws MelodyParseException with line and column of the first error
+     */
+    public static void parseFile(Path path, Consumer<Melody> consumer){
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            parse(channel, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Streams melodies from ASCII or UTF-8 encoded bytes of a channel to a consumer
+     * @param channel source of bytes, read until its end
+     * @param consumer receives every melody in order of lines
+     * @throws MelodyParseException with line and column of the first error
+     */
+    public static void parse(ReadableByteChannel channel, Consumer<Melody> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteSequence sequence = new ByteSequence();
+        Genes genes = new Genes();
+        int line = 1;
+        boolean end = false;
+        while(!end){
+            end = channel.read(buffer) < 0;
+            buffer.flip();
+            //Parse every complete line, and at the end whatever is left
+            int lineStart = buffer.position();
+            for (int i = lineStart; i < buffer.limit(); i++) {
+                if(buffer.get(i) == '\n'){
+                    parseLine(sequence.wrap(buffer, lineStart, i), line++, genes, consumer);
+                    lineStart = i + 1;
+                }
+            }
+            if(end && lineStart < buffer.limit())
+                parseLine(sequence.wrap(buffer, lineStart, buffer.limit()), line, genes, consumer);
+            buffer.position(lineStart);
+            buffer.compact();
+            //A line longer than the buffer
+            if(!buffer.hasRemaining())
+                buffer = ByteBuffer.allocate(2 * buffer.capacity()).put(buffer.flip());
+        }
+    }
+
+    /**
+     * Streams melodies from bytes of a buffer, e.g. a memory-mapped file, to a consumer
+     * @param buffer ASCII or UTF-8 encoded lines between position and limit, position is left unchanged
+     * @param consumer receives every melody in order of lines
+     * @throws MelodyParseException with line and column of the first error
+     */
+    public static void parse(ByteBuffer buffer, Consumer<Melody> consumer){
+        ByteSequence sequence = new ByteSequence();
+        Genes genes = new Genes();
+        int line = 1, lineStart = buffer.position();
+        for (int i = lineStart; i <= buffer.limit(); i++) {
+            if(i == buffer.limit() || buffer.get(i) == '\n'){
+                parseLine(sequence.wrap(buffer, lineStart, i), line++, genes, consumer);
+                lineStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Parses one line of a file, passing its melody to consumer unless the line is blank or a comment
+     */
+    private static void parseLine(CharSequence line, int lineNumber, Genes genes, Consumer<Melody> consumer){
+        int from = 0, to = line.length();
+        if(to > 0 && line.charAt(to - 1) == '\r') to--;
+        while(from < to && isSpace(line.charAt(from))) from++;
+        if(from == to || line.charAt(from) == '#') return;
+        genes.count = 0;
+        parseLine(line, from, to, lineNumber, genes);
+        consumer.accept(new Melody(genes.toArray()));
+    }
+
+    /**
+     * Appends every note in [from, to) of input to genes
+     */
+    private static void parseLine(CharSequence input, int from, int to, int lineNumber, Genes genes){
+        int start = from;
+        while(start < to){
+            if(isSpace(input.charAt(start))){
+                start++;
+                continue;
+            }
+            int end = start + 1;
+            while(end < to && !isSpace(input.charAt(end))) end++;
+            genes.add(parseNote(input, start, end, lineNumber));
+            start = end;
+        }
+    }
+
+    /**
+     * @param input text containing the note
+     * @param start position of note name
+     * @param end position after last character of note
+     * @param lineNumber line of note, for error messages
+     * @return packed note
+     */
+    private static short parseNote(CharSequence input, int start, int end, int lineNumber){
+        char name = input.charAt(start);
+        if(name < 'A' || name > 'G')
+            throw new MelodyParseException("Expected note name A-G but found '" + name + "'", lineNumber, start + 1);
+        int octave = DEFAULT_OCTAVE, lengthCode = DEFAULT_LENGTH_CODE, modifier = 0;
+        boolean octaveSet = false, lengthSet = false, modified = false;
+        for (int i = start + 1; i < end; i++) {
+            char c = input.charAt(i);
+            if(c >= '0' && c <= '9'){
+                if(octaveSet)
+                    throw new MelodyParseException("Note has more than one octave", lineNumber, i + 1);
+                octave = c - '0';
+                octaveSet = true;
+            }
+            else if(c < Note.LENGTH_CODES.length && Note.LENGTH_CODES[c] >= 0){
+                if(lengthSet)
+                    throw new MelodyParseException("Note has more than one length", lineNumber, i + 1);
+                lengthCode = Note.LENGTH_CODES[c];
+                lengthSet = true;
+            }
+            else if(c == '#' || c == 'b'){
+                if(modified)
+                    throw new MelodyParseException("Note has more than one modifier", lineNumber, i + 1);
+                modifier = c == '#' ? 1 : -1;
+                modified = true;
+            }
+            else throw new MelodyParseException("Unexpected character '" + c + "' in note", lineNumber, i + 1);
+        }
+        int semitone = Note.semitone(name, modifier);
+        if(semitone < 0)
+            throw new MelodyParseException("Note " + input.subSequence(start, end) + " is not a valid note name and modifier", lineNumber, start + 1);
+        int midi = semitone + octave * 12;
+        if(midi > Note.PITCH_MASK)
+            throw new MelodyParseException("Note " + input.subSequence(start, end) + " is above MIDI range", lineNumber, start + 1);
+        return (short) (midi | lengthCode << Note.LENGTH_SHIFT);
+    }
+
+    private static boolean isSpace(char c){
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Growable array of packed notes reused for every line
+     */
+    private static class Genes {
+        private short[] values = new short[64];
+        private int count;
+
+        private void add(short gene){
+            if(count == values.length) values = Arrays.copyOf(values, 2 * count);
+            values[count++] = gene;
+        }
+
+        private short[] toArray(){
+            return Arrays.copyOf(values, count);
+        }
+    }
+
+    /**
+     * Reusable view of a range of bytes as characters, one byte per character
+     * Bytes outside ASCII map to characters no note contains, so UTF-8 input fails with the right position
+     */
+    private static class ByteSequence implements CharSequence {
+        private ByteBuffer buffer;
+        private int from, to;
+
+        private ByteSequence wrap(ByteBuffer buffer, int from, int to){
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(from + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder result = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                result.append(charAt(i));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
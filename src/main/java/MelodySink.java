@@ -0,0 +1,15 @@
+/**
+ * Consumes the fittest melody of a generation every snapshot interval while a genetic algorithm is running
+ * Called on a background thread of its own, never on the thread running the algorithm, so implementations may block on I/O or audio
+ */
+public interface MelodySink {
+    /**
+     * @param snapshot fittest melody of a generation
+     */
+    void accept(MelodySnapshot snapshot);
+
+    /**
+     * Called once after the last snapshot of a run has been accepted
+     */
+    default void close(){}
+}
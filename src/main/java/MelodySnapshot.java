@@ -0,0 +1,9 @@
+/**
+ * Fittest melody of a generation, as pushed to melody sinks
+ * @param generation generation number
+ * @param melody copy of the fittest melody, fitness already evaluated
+ * @param maxFitness fitness of an exact match of the target
+ * @param elapsedTime nanoseconds since the run started
+ */
+public record MelodySnapshot(int generation, Melody melody, int maxFitness, long elapsedTime) {
+}
@@ -1,21 +1,30 @@
+import javax.sound.midi.*;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class MelodyUtil {
-    private static char[] notes = {'C', 'D', 'E', 'F', 'G', 'A', 'B'};
-    private static String[] lengths = {"w", "h", "q", "i", "s"};
-    private static String[] modifiers = {"", "#", "b"};
+    /**
+     * Generates a melody of random notes
+     * @param length number of notes
+     * @return Melody object
+     */
+    public static Melody randomMelody(int length){
+        return randomMelody(length, ThreadLocalRandom.current());
+    }
 
     /**
      * Generates a melody of random notes
+     * @param length number of notes
+     * @param random source of randomness
      * @return Melody object
      */
-    public static Melody randomMelody(){
-        int length = App.MELODY_LENGTH;
-        List<Note> notes = new ArrayList<>();
+    public static Melody randomMelody(int length, RandomGenerator random){
+        short[] genes = new short[length];
         for (int i = 0; i < length; i++) {
-            notes.add(randomNote());
+            genes[i] = randomGene(random);
         }
-        return new Melody(notes);
+        return new Melody(genes);
     }
 
     /**
@@ -23,46 +32,74 @@ public class MelodyUtil {
      * @return Note object
      */
     public static Note randomNote(){
-        Random random = new Random();
+        return new Note(randomGene());
+    }
+
+    /**
+     * Generates a packed note with random MIDI number and length
+     * @return packed note, see {@link Note#pack(int, char)}
+     */
+    public static short randomGene(){
+        return randomGene(ThreadLocalRandom.current());
+    }
 
+    /**
+     * Generates a packed note with random MIDI number and length
+     * @param random source of randomness
+     * @return packed note, see {@link Note#pack(int, char)}
+     */
+    public static short randomGene(RandomGenerator random){
         int note = random.nextInt(128);
-        char length = lengths[random.nextInt(lengths.length)].charAt(0);
+        int lengthCode = random.nextInt(Note.LENGTHS.length);
 
-        return new Note(note, length);
+        return (short) (note | lengthCode << Note.LENGTH_SHIFT);
     }
 
     /**
      * Converts a string of notes in English notation into a Melody object
-     * @param string notes in English notation
+     * @param string notes in English notation, see {@link MelodyParser}
      * @return Melody object
+     * @throws MelodyParseException with position of the first invalid note
      */
     public static Melody stringToMelody(String string){
-        String[] noteStrings = string.split(" ");
-        List<Note> noteList = new ArrayList<>();
-
-        for(String s : noteStrings){
-            noteList.add(stringToNote(s));
-        }
-
-        return new Melody(noteList);
+        return MelodyParser.parseMelody(string);
     }
 
     /**
      * Converts a single note in English notation into a Note object
-     * @param string note in English notation
+     * @param string note in English notation, see {@link MelodyParser}
      * @return Note object
+     * @throws MelodyParseException if string is not a single valid note
      */
     public static Note stringToNote(String string){
-        //Default octave, length and modifier values
-        char octave = '5';
-        char length = 'q';
-        String modifier = "";
-        //Set note
-        for(char c : string.toCharArray()){
-            if(c >= '0' && c <= '8') octave = c;
-            else if(Arrays.asList(lengths).contains(Character.toString(c))) length = c;
-            else if(Arrays.asList(modifiers).contains(Character.toString(c))) modifier += c;
+        return new Note(MelodyParser.parseNote(string));
+    }
+
+    /** MIDI ticks per quarter note, so a sixteenth note still lasts a whole number of ticks */
+    public static final int TICKS_PER_QUARTER = 480;
+
+    /**
+     * Converts a melody into a single track MIDI sequence played on channel 0
+     * @param melody Melody object
+     * @return Sequence object that can be written with javax.sound.midi.MidiSystem
+     */
+    public static Sequence melodyToSequence(Melody melody){
+        try {
+            Sequence sequence = new Sequence(Sequence.PPQ, TICKS_PER_QUARTER);
+            Track track = sequence.createTrack();
+            long tick = 0;
+            for (int i = 0; i < melody.length(); i++) {
+                short gene = melody.getGene(i);
+                //Whole note lasts 4 quarters, every next length code halves it
+                long duration = 4L * TICKS_PER_QUARTER >> Note.lengthCode(Note.length(gene));
+                track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, Note.pitch(gene), 100), tick));
+                track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 0, Note.pitch(gene), 0), tick + duration));
+                tick += duration;
+            }
+            return sequence;
+        } catch (InvalidMidiDataException e) {
+            //Pitches are 7 bits and channel is fixed, so every message is valid
+            throw new IllegalStateException(e);
         }
-        return new Note(string.charAt(0), Character.getNumericValue(octave), length, modifier);
     }
 }
@@ -0,0 +1,70 @@
+import enums.MetricsFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Writes statistics of every generation to a local file, one line per generation, and closes the file when the run finishes
+ * MetricsFormat.CSV -> comma separated values with a header line
+ * MetricsFormat.JSON_LINES -> one JSON object per line
+ */
+public class MetricsWriter implements GenerationListener {
+    private static final String[] COLUMNS = {"generation", "bestFitness", "meanFitness", "minFitness", "diversity",
+            "entropy", "hammingDistance",
+            "selectionTime", "crossoverTime", "mutationTime", "evaluationTime", "allocatedBytes", "generationsPerSecond"};
+
+    private final BufferedWriter writer;
+    private final MetricsFormat format;
+
+    /**
+     * @param path file to write to, replaced if it exists
+     * @param format
+     */
+    public MetricsWriter(Path path, MetricsFormat format) {
+        this.format = format;
+        try {
+            this.writer = Files.newBufferedWriter(path);
+            if(format == MetricsFormat.CSV){
+                writer.write(String.join(",", COLUMNS));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onGeneration(GenerationStatistics statistics) {
+        Object[] values = {statistics.generation(), statistics.bestFitness(), statistics.meanFitness(), statistics.minFitness(),
+                statistics.diversity(), statistics.entropy(), statistics.hammingDistance(), statistics.selectionTime(), statistics.crossoverTime(), statistics.mutationTime(),
+                statistics.evaluationTime(), statistics.allocatedBytes(), statistics.generationsPerSecond()};
+        StringBuilder line = new StringBuilder();
+        if(format == MetricsFormat.JSON_LINES) line.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if(i > 0) line.append(',');
+            if(format == MetricsFormat.JSON_LINES) line.append('"').append(COLUMNS[i]).append("\":");
+            //Locale.ROOT keeps '.' as decimal separator regardless of system locale
+            line.append(values[i] instanceof Double d ? String.format(Locale.ROOT, "%.4f", d) : values[i]);
+        }
+        if(format == MetricsFormat.JSON_LINES) line.append('}');
+        try {
+            writer.write(line.toString());
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onFinish() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
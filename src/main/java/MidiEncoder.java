@@ -0,0 +1,96 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes melodies straight into standard MIDI file chunks, without building a javax.sound.midi Sequence first
+ *
+ * A file is a header chunk followed by one track chunk per melody, all big endian
+ * MThd: length 6, format, number of tracks, ticks per quarter note
+ * MTrk: length, then events each preceded by the ticks since the previous one as a variable length quantity:
+ * the track name, note on and note off of every note on channel 0, end of track
+ */
+final class MidiEncoder {
+    /** Size of the header chunk */
+    static final int HEADER_SIZE = 14;
+    /** Largest variable length quantity, longer delta times are split by empty text events */
+    private static final int MAX_DELTA = 0x0FFFFFFF;
+    private static final int VELOCITY = 100;
+
+    private MidiEncoder(){}
+
+    /**
+     * @param buffer receives the header chunk at its position
+     * @param format 0 for a single track, 1 for several tracks sharing one time line
+     * @param tracks number of track chunks following the header
+     */
+    static void putHeader(ByteBuffer buffer, int format, int tracks){
+        buffer.put((byte) 'M').put((byte) 'T').put((byte) 'h').put((byte) 'd').putInt(6)
+              .putShort((short) format).putShort((short) tracks).putShort((short) MelodyUtil.TICKS_PER_QUARTER);
+    }
+
+    /**
+     * @param melody melody to encode
+     * @param name track name
+     * @param startTick tick the first note starts at
+     * @return bytes putTrack writes at most
+     */
+    static int trackSize(Melody melody, String name, long startTick){
+        //Chunk header, name, up to 4 byte delta and 3 byte message per event, end of track, padding of long delays
+        return 8 + 8 + name.length() + 14 * melody.length() + 4 + 7 * (int) (startTick / MAX_DELTA);
+    }
+
+    /**
+     * @param buffer receives the track chunk at its position, must have trackSize bytes remaining
+     * @param melody melody to encode
+     * @param name track name, ASCII
+     * @param startTick tick the first note starts at
+     * @return tick the last note ends at
+     */
+    static long putTrack(ByteBuffer buffer, Melody melody, String name, long startTick){
+        int start = buffer.position();
+        buffer.put((byte) 'M').put((byte) 'T').put((byte) 'r').put((byte) 'k').putInt(0);
+        byte[] text = name.getBytes(StandardCharsets.US_ASCII);
+        putDelta(buffer, 0);
+        buffer.put((byte) 0xFF).put((byte) 0x03);
+        putQuantity(buffer, text.length);
+        buffer.put(text);
+        long delay = startTick;
+        for (int i = 0; i < melody.length(); i++) {
+            short gene = melody.getGene(i);
+            byte pitch = (byte) Note.pitch(gene);
+            //Whole note lasts 4 quarters, every next length code halves it
+            int duration = 4 * MelodyUtil.TICKS_PER_QUARTER >> Note.lengthCode(Note.length(gene));
+            putDelta(buffer, delay);
+            buffer.put((byte) 0x90).put(pitch).put((byte) VELOCITY);
+            putDelta(buffer, duration);
+            buffer.put((byte) 0x80).put(pitch).put((byte) 0);
+            delay = 0;
+            startTick += duration;
+        }
+        putDelta(buffer, delay);
+        buffer.put((byte) 0xFF).put((byte) 0x2F).put((byte) 0);
+        buffer.putInt(start + 4, buffer.position() - start - 8);
+        return startTick;
+    }
+
+    /**
+     * Writes a delta time, preceded by empty text events taking up whatever exceeds MAX_DELTA
+     */
+    private static void putDelta(ByteBuffer buffer, long ticks){
+        for (; ticks > MAX_DELTA; ticks -= MAX_DELTA) {
+            putQuantity(buffer, MAX_DELTA);
+            buffer.put((byte) 0xFF).put((byte) 0x01).put((byte) 0);
+        }
+        putQuantity(buffer, (int) ticks);
+    }
+
+    /**
+     * Writes value 7 bits per byte, most significant first, every byte but the last with its high bit set
+     */
+    private static void putQuantity(ByteBuffer buffer, int value){
+        for (int shift = 21; shift > 0; shift -= 7) {
+            if(value >>> shift != 0) buffer.put((byte) (0x80 | value >>> shift & 0x7F));
+        }
+        buffer.put((byte) (value & 0x7F));
+    }
+}
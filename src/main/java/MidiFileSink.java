@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes every snapshot to its own standard MIDI file named after its generation, e.g. generation-0001000.mid
+ * Every file is encoded into a reused buffer and written with a single channel write
+ * An instance writes the files of a single run, batches create one per target through BatchRunner.sink
+ * so that every run writes into a directory of its own instead of overwriting the files of other runs
+ */
+public class MidiFileSink implements MelodySink {
+    private final Path directory;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+    private boolean closed;
+
+    /**
+     * @param directory directory to write files into, created if it does not exist
+     */
+    public MidiFileSink(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(MelodySnapshot snapshot) {
+        if(closed)
+            throw new IllegalStateException("Sink was closed with its run, every run needs a sink of its own");
+        Path file = directory.resolve(String.format("generation-%07d.mid", snapshot.generation()));
+        String name = trackName(snapshot);
+        int size = MidiEncoder.HEADER_SIZE + MidiEncoder.trackSize(snapshot.melody(), name, 0);
+        if(buffer.capacity() < size) buffer = ByteBuffer.allocate(Integer.highestOneBit(size) << 1);
+        buffer.clear();
+        //Type 0 file holds the single track of the melody
+        MidiEncoder.putHeader(buffer, 0, 1);
+        MidiEncoder.putTrack(buffer, snapshot.melody(), name, 0);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * @return name of the track holding a snapshot, e.g. "Generation 1000, fitness 98/120"
+     */
+    static String trackName(MelodySnapshot snapshot){
+        return "Generation " + snapshot.generation() + ", fitness " + snapshot.melody().fitness() + "/" + snapshot.maxFitness();
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes all snapshots of a run into a single type 1 MIDI file, one named track per snapshot
+ * Tracks follow each other in time with a whole note of rest in between, so playing the file plays the whole evolution
+ * while an editor shows every generation on a lane of its own
+ * Tracks are appended as snapshots arrive, buffered until BUFFER_SIZE bytes are pending, and the track count
+ * in the header is filled in on close, so memory stays constant however long the run
+ * A MIDI file holds at most 65535 tracks, later snapshots are left out
+ * An instance writes the file of a single run, batches create one per target through BatchRunner.sink
+ */
+public class MultiTrackMidiSink implements MelodySink {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_TRACKS = 0xFFFF;
+    private static final int REST = 4 * MelodyUtil.TICKS_PER_QUARTER;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private int tracks;
+    /** Tick the next track starts at */
+    private long tick;
+
+    /**
+     * @param path file to write to, replaced if it exists
+     */
+    public MultiTrackMidiSink(Path path) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        //Track count is written on close
+        MidiEncoder.putHeader(buffer, 1, 0);
+    }
+
+    @Override
+    public void accept(MelodySnapshot snapshot) {
+        if(!channel.isOpen())
+            throw new IllegalStateException("Sink was closed with its run, every run needs a sink of its own");
+        if(tracks == MAX_TRACKS) return;
+        String name = MidiFileSink.trackName(snapshot);
+        int size = MidiEncoder.trackSize(snapshot.melody(), name, tick);
+        try {
+            if(buffer.remaining() < size) flush();
+            if(buffer.capacity() < size) buffer = ByteBuffer.allocateDirect(size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        tick = MidiEncoder.putTrack(buffer, snapshot.melody(), name, tick) + REST;
+        tracks++;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() {
+        try (channel) {
+            flush();
+            buffer.putShort((short) tracks).flip();
+            //Number of tracks follows chunk type, chunk length and format
+            channel.write(buffer, 10);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
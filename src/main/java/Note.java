@@ -1,18 +1,46 @@
+import java.util.Arrays;
+
 /**
  * Describes a note containing a MIDI code and length of note
+ * The note is stored packed into a single short (gene): bits 0-6 hold the MIDI value, bits 7-9 hold the length code
  */
 public class Note {
-    private Integer note;
-    private Character length;
+    public static final int PITCH_MASK = 0x7F;
+    public static final int LENGTH_SHIFT = 7;
+    public static final int LENGTH_MASK = 0x7 << LENGTH_SHIFT;
+    /** Note lengths in JFugue notation, indexed by length code */
+    static final char[] LENGTHS = {'w', 'h', 'q', 'i', 's'};
+    /** Length code of every ASCII character, -1 if it is not a length */
+    static final byte[] LENGTH_CODES = new byte[128];
+    /** Semitone of note names A-G within an octave, indexed by name - 'A' */
+    private static final int[] SEMITONES = {9, 11, 0, 2, 4, 5, 7};
+    /** Bit i is set if semitone i of an octave is a black key, the only notes a sharp or flat may lead to */
+    private static final int BLACK_KEYS = 1 << 1 | 1 << 3 | 1 << 6 | 1 << 8 | 1 << 10;
+
+    static {
+        Arrays.fill(LENGTH_CODES, (byte) -1);
+        for (int i = 0; i < LENGTHS.length; i++) {
+            LENGTH_CODES[LENGTHS[i]] = (byte) i;
+        }
+    }
+
+    private final short gene;
+
+    /**
+     *
+     * @param gene packed note as produced by {@link #pack(int, char)}
+     */
+    public Note(short gene) {
+        this.gene = gene;
+    }
 
     /**
      *
      * @param note MIDI value of note (0-127)
      * @param lenght length of note in JFugue notation (w, h, q, i, s)
      */
-    public Note(Integer note, Character lenght) {
-        this.note = note;
-        this.length = lenght;
+    public Note(int note, char lenght) {
+        this.gene = pack(note, lenght);
     }
 
     /**
@@ -22,36 +50,82 @@ public class Note {
      * @param length length of note in JFugue notation (w, h, q, i, s)
      * @param modifier sharp (#) or flat (b), empty string if neither
      */
-    public Note(Character note, Integer octave, Character length, String modifier){
-        this.length = length;
-        this.note = switch(note.toString()+modifier){
-            case "C" -> 0;
-            case "C#", "Db" -> 1;
-            case "D" -> 2;
-            case "D#", "Eb" -> 3;
-            case "E" -> 4;
-            case "F" -> 5;
-            case "F#", "Gb" -> 6;
-            case "G" -> 7;
-            case "G#", "Ab" -> 8;
-            case "A" -> 9;
-            case "A#", "Bb" -> 10;
-            case "B" -> 11;
-            default -> throw new IllegalArgumentException("Supplied note or modifier is invalid");
+    public Note(char note, int octave, char length, String modifier){
+        int midi = switch(modifier){
+            case "" -> semitone(note, 0);
+            case "#" -> semitone(note, 1);
+            case "b" -> semitone(note, -1);
+            default -> -1;
         };
-        this.note += octave * 12;
+        if(midi < 0)
+            throw new IllegalArgumentException("Supplied note or modifier is invalid");
+        this.gene = pack(midi + octave * 12, length);
+    }
+
+    /**
+     * @param note English notation (C, D, E, F, G, A, B)
+     * @param modifier 1 for sharp, -1 for flat, 0 for neither
+     * @return semitone of note within its octave, -1 if note is not a note name or the modifier does not lead to a black key
+     */
+    static int semitone(char note, int modifier){
+        if(note < 'A' || note > 'G') return -1;
+        int semitone = SEMITONES[note - 'A'] + modifier;
+        if(modifier != 0 && (semitone < 0 || (BLACK_KEYS >> semitone & 1) == 0)) return -1;
+        return semitone;
+    }
+
+    /**
+     * Packs a MIDI value and a note length into a single gene
+     * @param note MIDI value of note (0-127)
+     * @param length length of note in JFugue notation (w, h, q, i, s)
+     * @return packed gene
+     */
+    public static short pack(int note, char length){
+        if(note < 0 || note > PITCH_MASK)
+            throw new IllegalArgumentException("MIDI value must be in range [0,127]");
+        return (short) (note | lengthCode(length) << LENGTH_SHIFT);
+    }
+
+    /**
+     * @param length length of note in JFugue notation (w, h, q, i, s)
+     * @return index of length in LENGTHS
+     */
+    public static int lengthCode(char length){
+        if(length >= LENGTH_CODES.length || LENGTH_CODES[length] < 0)
+            throw new IllegalArgumentException("Supplied length is invalid");
+        return LENGTH_CODES[length];
+    }
+
+    /**
+     * @param gene packed note
+     * @return MIDI value of packed note
+     */
+    public static int pitch(short gene){
+        return gene & PITCH_MASK;
+    }
+
+    /**
+     * @param gene packed note
+     * @return length of packed note in JFugue notation
+     */
+    public static char length(short gene){
+        return LENGTHS[(gene & LENGTH_MASK) >> LENGTH_SHIFT];
+    }
+
+    public int getNote() {
+        return pitch(gene);
     }
 
-    public Integer getNote() {
-        return note;
+    public char getLength() {
+        return length(gene);
     }
 
-    public Character getLength() {
-        return length;
+    public short getGene() {
+        return gene;
     }
 
     @Override
     public String toString() {
-        return note.toString()+ length;
+        return Integer.toString(getNote()) + getLength();
     }
 }
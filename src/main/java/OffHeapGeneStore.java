@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Genes outside of the Java heap, in direct buffers or in buffers mapped from a temporary file
+ * Neither count towards the heap, so the garbage collector never scans or copies them however large the population grows
+ * A buffer holds at most 1 GiB, so genes are split into segments of a power of two melodies each, no melody crossing two segments
+ * Mapped genes are paged to and from their file by the operating system, so a population may even exceed physical memory
+ */
+class OffHeapGeneStore implements GeneStore {
+    /** Largest segment in bytes */
+    private static final int SEGMENT_BYTES = 1 << 30;
+
+    private final int length;
+    /** Melody i is segment i >>> shift, starting at note (i & mask) * length of it */
+    private final int shift, mask;
+    private final ByteBuffer[] segments;
+
+    /**
+     * @param size number of melodies
+     * @param length number of notes of every melody
+     * @param directory directory of the backing file, null for direct buffers
+     * @throws UncheckedIOException if the backing file cannot be created or mapped
+     */
+    OffHeapGeneStore(int size, int length, Path directory) {
+        this.length = length;
+        this.shift = 31 - Integer.numberOfLeadingZeros(Math.max(1, SEGMENT_BYTES / (2 * length)));
+        this.mask = (1 << shift) - 1;
+        this.segments = new ByteBuffer[(int) (((long) size + mask) >>> shift)];
+        if(directory == null){
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = ByteBuffer.allocateDirect(segmentBytes(i, size)).order(ByteOrder.nativeOrder());
+            }
+            return;
+        }
+        try {
+            //Mappings stay valid after the channel is closed, which also deletes the file
+            Path file = Files.createTempFile(directory, "population", ".genes");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+                long position = 0;
+                for (int i = 0; i < segments.length; i++) {
+                    int bytes = segmentBytes(i, size);
+                    segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes).order(ByteOrder.nativeOrder());
+                    position += bytes;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return size of segment in bytes, only the last one may hold fewer than mask + 1 melodies
+     */
+    private int segmentBytes(int segment, int size){
+        return 2 * length * Math.min(mask + 1, size - (segment << shift));
+    }
+
+    /**
+     * @return position of a gene in bytes inside the segment of its melody
+     */
+    private int position(int index, int locus){
+        return 2 * ((index & mask) * length + locus);
+    }
+
+    @Override
+    public short get(int index, int locus) {
+        return segments[index >>> shift].getShort(position(index, locus));
+    }
+
+    @Override
+    public void set(int index, int locus, short gene) {
+        segments[index >>> shift].putShort(position(index, locus), gene);
+    }
+
+    @Override
+    public void copy(int index, int locus, GeneStore destination, int destinationIndex, int destinationLocus, int count) {
+        if(destination instanceof OffHeapGeneStore offHeap){
+            offHeap.segments[destinationIndex >>> offHeap.shift].put(offHeap.position(destinationIndex, destinationLocus),
+                    segments[index >>> shift], position(index, locus), 2 * count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            destination.set(destinationIndex, destinationLocus + i, get(index, locus + i));
+        }
+    }
+
+    @Override
+    public void read(int index, short[] genes, int offset) {
+        segments[index >>> shift].asShortBuffer().get(position(index, 0) / 2, genes, offset, length);
+    }
+
+    @Override
+    public void write(int index, short[] genes, int offset) {
+        segments[index >>> shift].asShortBuffer().put(position(index, 0) / 2, genes, offset, length);
+    }
+
+    @Override
+    public int rangeFitness(FitnessFunction function, int index, int from, int to) {
+        return function.rangeFitness(segments[index >>> shift], (index & mask) * length, from, to);
+    }
+
+    @Override
+    public void evaluate(FitnessFunction function, int[] fitness, int from, int to) {
+        //One batched pass per segment the range touches, melodies of a segment lie one after another
+        for (int i = from; i < to; ) {
+            int end = (int) Math.min(to, ((long) (i >>> shift) + 1) << shift);
+            function.evaluate(segments[i >>> shift], (i & mask) * length, fitness, i, end);
+            i = end;
+        }
+    }
+}
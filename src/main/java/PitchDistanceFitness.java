@@ -0,0 +1,49 @@
+/**
+ * Graded score rewarding notes for being close to the target rather than only for being equal
+ * Pitch earns up to 12 points, one less for every semitone away from the target pitch
+ * Length earns up to 12 points, 3 less for every step between length codes, i.e. every doubling or halving of duration
+ */
+class PitchDistanceFitness implements FitnessFunction {
+    static final int PITCH_POINTS = 12, LENGTH_POINTS = 12, LENGTH_STEP = 3;
+
+    private final int[] pitches, lengthCodes;
+
+    PitchDistanceFitness(Melody target) {
+        this.pitches = new int[target.length()];
+        this.lengthCodes = new int[target.length()];
+        for (int i = 0; i < target.length(); i++) {
+            pitches[i] = target.getGene(i) & Note.PITCH_MASK;
+            lengthCodes[i] = (target.getGene(i) & Note.LENGTH_MASK) >> Note.LENGTH_SHIFT;
+        }
+    }
+
+    @Override
+    public int length() {
+        return pitches.length;
+    }
+
+    @Override
+    public int maxFitness() {
+        return (PITCH_POINTS + LENGTH_POINTS) * pitches.length;
+    }
+
+    @Override
+    public int noteFitness(short previous, short note, int index) {
+        return pitchScore(note & Note.PITCH_MASK, pitches[index]) + lengthScore(note, lengthCodes[index]);
+    }
+
+    /**
+     * @return PITCH_POINTS less one point per semitone between pitches, at least 0
+     */
+    static int pitchScore(int pitch, int target){
+        return Math.max(0, PITCH_POINTS - Math.abs(pitch - target));
+    }
+
+    /**
+     * @return LENGTH_POINTS less LENGTH_STEP points per step between length codes, at least 0
+     */
+    static int lengthScore(short note, int targetCode){
+        int code = (note & Note.LENGTH_MASK) >> Note.LENGTH_SHIFT;
+        return Math.max(0, LENGTH_POINTS - LENGTH_STEP * Math.abs(code - targetCode));
+    }
+}
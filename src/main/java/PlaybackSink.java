@@ -0,0 +1,16 @@
+import org.jfugue.player.Player;
+
+/**
+ * Plays every snapshot through JFugue while the run continues
+ * Playback takes far longer than producing a generation, so snapshots arriving during playback mostly get dropped
+ * and what is heard is the most recent progress
+ */
+public class PlaybackSink implements MelodySink {
+    private final Player player = new Player();
+
+    @Override
+    public void accept(MelodySnapshot snapshot) {
+        System.out.printf("Now playing generation %d, fitness %d/%d%n", snapshot.generation(), snapshot.melody().fitness(), snapshot.maxFitness());
+        player.play(snapshot.melody().toString());
+    }
+}
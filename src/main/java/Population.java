@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+/**
+ * Fixed size population whose packed notes are kept in a GeneStore, on the heap or off it,
+ * with the fitness of every melody kept in a parallel array
+ * Melodies are written in place, so a population is allocated once and reused for every generation
+ */
+class Population {
+    final int size, length;
+    final GeneStore genes;
+    final int[] fitness;
+    /** Scores every melody against the target */
+    final FitnessFunction function;
+    /** Fitness of previously evaluated melodies, null if full evaluations are not cached */
+    final FitnessCache cache;
+    private long[] rankKeys;
+    private int[] ranking;
+    private long[] hashes;
+
+    /**
+     * @param size number of melodies
+     * @param function fitness function every melody is evaluated with, defines number of notes in every melody
+     */
+    Population(int size, FitnessFunction function) {
+        this(size, function, null, new HeapGeneStore(size, function.length()));
+    }
+
+    /**
+     * @param size number of melodies
+     * @param function fitness function every melody is evaluated with, defines number of notes in every melody
+     * @param cache cache consulted before every full evaluation, may be shared with other populations using the same function
+     * @param genes store of size melodies of the function's length
+     */
+    Population(int size, FitnessFunction function, FitnessCache cache, GeneStore genes) {
+        this.size = size;
+        this.length = function.length();
+        this.function = function;
+        this.cache = cache;
+        this.genes = genes;
+        this.fitness = new int[size];
+    }
+
+    /**
+     * Recomputes fitness of a melody from all of its genes
+     * @param index melody index
+     */
+    void evaluate(int index){
+        if(cache == null){
+            fitness[index] = genes.rangeFitness(function, index, 0, length);
+            return;
+        }
+        long key = hash(index);
+        int cached = cache.get(key);
+        if(cached < 0){
+            cached = genes.rangeFitness(function, index, 0, length);
+            cache.put(key, cached);
+        }
+        fitness[index] = cached;
+    }
+
+    /**
+     * Recomputes fitness of melodies [from, to) in a single batched pass, or one by one through the cache if there is one
+     * @param from first melody index (inclusive)
+     * @param to last melody index (exclusive)
+     */
+    void evaluate(int from, int to){
+        if(cache == null){
+            genes.evaluate(function, fitness, from, to);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            evaluate(i);
+        }
+    }
+
+    /**
+     * Replaces a single gene, adjusting fitness by the difference of the old and new gene
+     * and, if the fitness function compares neighbours, of the gene after it
+     * @param index melody index
+     * @param locus position of gene inside the melody
+     * @param gene new packed note
+     */
+    void setGene(int index, int locus, short gene){
+        short previous = locus > 0 ? genes.get(index, locus - 1) : 0, old = genes.get(index, locus);
+        int difference = function.noteFitness(previous, gene, locus) - function.noteFitness(previous, old, locus);
+        if(function.dependsOnPrevious() && locus + 1 < length){
+            short next = genes.get(index, locus + 1);
+            difference += function.noteFitness(gene, next, locus + 1) - function.noteFitness(old, next, locus + 1);
+        }
+        fitness[index] += difference;
+        genes.set(index, locus, gene);
+    }
+
+    /**
+     * Fitness of base melody with genes in range [from, to) taken from donor melody
+     * Only genes of the shorter side of the splice are compared against the target
+     * @param base index of melody providing genes outside of range
+     * @param donor index of melody providing genes inside of range
+     * @param from first locus taken from donor (inclusive)
+     * @param to last locus taken from donor (exclusive)
+     * @return fitness of spliced melody
+     */
+    int spliceFitness(int base, int donor, int from, int to){
+        if(function.dependsOnPrevious()) return neighbourSpliceFitness(base, donor, from, to);
+        if(2 * (to - from) <= length)
+            return fitness[base] - genes.rangeFitness(function, base, from, to) + genes.rangeFitness(function, donor, from, to);
+        return fitness[donor]
+                - genes.rangeFitness(function, donor, 0, from) - genes.rangeFitness(function, donor, to, length)
+                + genes.rangeFitness(function, base, 0, from) + genes.rangeFitness(function, base, to, length);
+    }
+
+    /**
+     * spliceFitness for fitness functions comparing neighbours, where the first note taken from donor
+     * and the first note after the range are scored against a note of the other parent
+     */
+    private int neighbourSpliceFitness(int base, int donor, int from, int to){
+        if(from == to) return fitness[base];
+        int result = fitness[base] - genes.rangeFitness(function, base, from, Math.min(to + 1, length))
+                + genes.rangeFitness(function, donor, from + 1, to)
+                + function.noteFitness(from > 0 ? genes.get(base, from - 1) : 0, genes.get(donor, from), from);
+        if(to < length)
+            result += function.noteFitness(genes.get(donor, to - 1), genes.get(base, to), to);
+        return result;
+    }
+
+    /**
+     * Copies genes and fitness of a melody into a slot of another (or the same) population
+     * @param index melody index in this population
+     * @param destination population to copy into
+     * @param destinationIndex melody index in destination
+     */
+    void copy(int index, Population destination, int destinationIndex){
+        genes.copy(index, 0, destination.genes, destinationIndex, 0, length);
+        destination.fitness[destinationIndex] = fitness[index];
+    }
+
+    /**
+     * @param index melody index
+     * @return standalone copy of the melody
+     */
+    Melody get(int index){
+        short[] copy = new short[length];
+        genes.read(index, copy, 0);
+        return new Melody(copy, fitness[index]);
+    }
+
+    /**
+     * Overwrites a melody with a copy of given melody and evaluates it with this population's fitness function
+     * @param index melody index
+     * @param melody melody of the same length
+     */
+    void set(int index, Melody melody){
+        if(melody.length() != length)
+            throw new IllegalArgumentException("Melody must have the same length as target");
+        genes.write(index, melody.getGenes(), 0);
+        evaluate(index);
+    }
+
+    /**
+     * @return index of the fittest melody
+     */
+    int best(){
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if(fitness[i] > fitness[best]) best = i;
+        }
+        return best;
+    }
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L, PRIME2 = 0xC2B2AE3D27D4EB4FL, PRIME3 = 0x165667B19E3779F9L;
+
+    /**
+     * 64-bit hash of a melody's genes in the style of xxHash64, mixing four packed notes per step
+     * Every step is a bijection of the running hash for a fixed lane and of the lane for a fixed hash,
+     * so melodies differing in a single note never collide
+     * @param index melody index
+     * @return hash of genes
+     */
+    long hash(int index){
+        int i = 0;
+        long hash = length * PRIME3;
+        for (; i + 4 <= length; i += 4) {
+            long lane = genes.get(index, i) & 0xFFFFL | (genes.get(index, i + 1) & 0xFFFFL) << 16
+                    | (genes.get(index, i + 2) & 0xFFFFL) << 32 | (long) genes.get(index, i + 3) << 48;
+            hash = Long.rotateLeft(hash ^ lane * PRIME2, 31) * PRIME1;
+        }
+        for (; i < length; i++) {
+            hash = Long.rotateLeft(hash ^ (genes.get(index, i) & 0xFFFFL) * PRIME3, 11) * PRIME1;
+        }
+        //Avalanche, so the low bits that pick a cache set depend on every note
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        return hash ^ hash >>> 32;
+    }
+
+    /**
+     * Share of distinct melodies, comparing melodies by hash of their genes
+     * @return value in range (0,1], 1 if all melodies differ
+     */
+    double distinctRatio(){
+        if(hashes == null) hashes = new long[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = hash(i);
+        }
+        Arrays.sort(hashes);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if(hashes[i] != hashes[i - 1]) distinct++;
+        }
+        return distinct / (double) size;
+    }
+
+    /**
+     * Orders melody indices by descending fitness without moving any genes
+     * The returned array is reused and overwritten by the next call
+     * @return melody indices, fittest first
+     */
+    int[] ranking(){
+        if(ranking == null){
+            ranking = new int[size];
+            rankKeys = new long[size];
+        }
+        //Fitness and index packed into one long sort as primitives, fitness being non-negative
+        for (int i = 0; i < size; i++) {
+            rankKeys[i] = (long) fitness[i] << 32 | i;
+        }
+        Arrays.sort(rankKeys);
+        for (int i = 0; i < size; i++) {
+            ranking[i] = (int) rankKeys[size - 1 - i];
+        }
+        return ranking;
+    }
+}
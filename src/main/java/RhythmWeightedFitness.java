@@ -0,0 +1,37 @@
+/**
+ * Exact matching of pitch and length where every note counts in proportion to the duration of the target note,
+ * so getting a whole note right is worth 16 times as much as a sixteenth
+ */
+class RhythmWeightedFitness implements FitnessFunction {
+    private final short[] target;
+    /** Duration of every target note in sixteenths */
+    private final int[] weights;
+    private final int maxFitness;
+
+    RhythmWeightedFitness(Melody target) {
+        this.target = target.getGenes().clone();
+        this.weights = new int[target.length()];
+        int weightSum = 0;
+        for (int i = 0; i < target.length(); i++) {
+            //Whole note is 16 sixteenths, every next length code halves it
+            weights[i] = 16 >> ((target.getGene(i) & Note.LENGTH_MASK) >> Note.LENGTH_SHIFT);
+            weightSum += weights[i];
+        }
+        this.maxFitness = 2 * weightSum;
+    }
+
+    @Override
+    public int length() {
+        return target.length;
+    }
+
+    @Override
+    public int maxFitness() {
+        return maxFitness;
+    }
+
+    @Override
+    public int noteFitness(short previous, short note, int index) {
+        return weights[index] * Melody.geneFitness(note, target[index]);
+    }
+}
@@ -0,0 +1,33 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Fitness kernel comparing one note at a time
+ */
+class ScalarFitnessKernel implements FitnessKernel {
+    @Override
+    public int rangeFitness(short[] genes, int offset, short[] target, int from, int to){
+        int fitness = 0;
+        //Compare each note individually
+        for (int i = from; i < to; i++) {
+            int difference = genes[offset + i] ^ target[i];
+            if((difference & Note.PITCH_MASK) == 0)
+                fitness++;
+            if((difference & Note.LENGTH_MASK) == 0)
+                fitness++;
+        }
+        return fitness;
+    }
+
+    @Override
+    public int rangeFitness(ByteBuffer genes, int offset, short[] target, int from, int to){
+        int fitness = 0;
+        for (int i = from; i < to; i++) {
+            int difference = genes.getShort(2 * (offset + i)) ^ target[i];
+            if((difference & Note.PITCH_MASK) == 0)
+                fitness++;
+            if((difference & Note.LENGTH_MASK) == 0)
+                fitness++;
+        }
+        return fitness;
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands snapshots from the algorithm's thread to a melody sink running on its own background thread
+ * The queue between them is bounded, when the sink falls behind the oldest waiting snapshot is dropped
+ * so the algorithm never blocks and memory stays constant however long the run
+ */
+class SinkDispatcher {
+    /** Marks the end of the stream, never passed to the sink */
+    private static final MelodySnapshot END = new MelodySnapshot(-1, null, 0, 0);
+
+    private final MelodySink sink;
+    private final BlockingQueue<MelodySnapshot> queue;
+    private final Thread thread;
+    private volatile RuntimeException failure;
+    private volatile long dropped;
+
+    /**
+     * @param sink consumer of snapshots
+     * @param capacity number of snapshots that can wait for the sink
+     */
+    SinkDispatcher(MelodySink sink, int capacity) {
+        this.sink = sink;
+        //One extra slot so END always fits
+        this.queue = new ArrayBlockingQueue<>(capacity + 1);
+        this.thread = new Thread(this::drain, "melody-sink-" + sink.getClass().getSimpleName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void drain(){
+        try {
+            for (MelodySnapshot snapshot = queue.take(); snapshot != END; snapshot = queue.take()) {
+                //A failed sink is skipped but the queue is still drained, failure is reported on close
+                if(failure != null) continue;
+                try {
+                    sink.accept(snapshot);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                if(failure == null) failure = e;
+            }
+        }
+    }
+
+    /**
+     * Queues a snapshot without blocking, dropping the oldest waiting snapshot if the queue is full
+     * Only called by the thread running the algorithm
+     * @param snapshot
+     */
+    void offer(MelodySnapshot snapshot){
+        while(queue.remainingCapacity() <= 1 || !queue.offer(snapshot)){
+            if(queue.poll() != null) dropped++;
+        }
+    }
+
+    /**
+     * Waits until the sink has consumed every queued snapshot and is closed
+     * @throws IllegalStateException if the sink failed
+     */
+    void close(){
+        queue.add(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for melody sink", e);
+        }
+        if(failure != null)
+            throw new IllegalStateException("Melody sink " + sink.getClass().getSimpleName() + " failed", failure);
+    }
+
+    /**
+     * @return number of snapshots dropped because the sink fell behind
+     */
+    long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,140 @@
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fitness kernel comparing as many notes at once as the CPU's widest vector holds, e.g. 32 with AVX-512
+ * Each lane XORs a note with its target note, then pitch and length bits of the difference are tested for zero separately
+ * Notes past the last full vector are compared one at a time
+ *
+ * Batched evaluation streams vectors over all melodies at once, a vector may hold the end of one melody and the start of the next
+ * Lanes are compared against the target tiled to target.length + SPECIES.length() notes once per target, loaded from the current melody's position,
+ * and matches of a melody ending inside a vector are counted under a mask of the lanes before its end
+ * So targets shorter than a vector vectorize as well, and only the notes after the last full vector of the batch are compared one at a time
+ */
+class VectorFitnessKernel implements FitnessKernel {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    /** PREFIXES[n] selects the first n lanes */
+    private static final VectorMask<Short>[] PREFIXES = prefixes();
+
+    @Override
+    public int rangeFitness(short[] genes, int offset, short[] target, int from, int to){
+        int fitness = 0;
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            ShortVector difference = ShortVector.fromArray(SPECIES, genes, offset + i)
+                    .lanewise(VectorOperators.XOR, ShortVector.fromArray(SPECIES, target, i));
+            fitness += difference.and((short) Note.PITCH_MASK).eq((short) 0).trueCount()
+                     + difference.and((short) Note.LENGTH_MASK).eq((short) 0).trueCount();
+        }
+        for (; i < to; i++) {
+            fitness += Melody.geneFitness(genes[offset + i], target[i]);
+        }
+        return fitness;
+    }
+
+    @Override
+    public int rangeFitness(ByteBuffer genes, int offset, short[] target, int from, int to){
+        int fitness = 0;
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            ShortVector difference = ShortVector.fromByteBuffer(SPECIES, genes, 2 * (offset + i), ByteOrder.nativeOrder())
+                    .lanewise(VectorOperators.XOR, ShortVector.fromArray(SPECIES, target, i));
+            fitness += difference.and((short) Note.PITCH_MASK).eq((short) 0).trueCount()
+                     + difference.and((short) Note.LENGTH_MASK).eq((short) 0).trueCount();
+        }
+        for (; i < to; i++) {
+            fitness += Melody.geneFitness(genes.getShort(2 * (offset + i)), target[i]);
+        }
+        return fitness;
+    }
+
+    /**
+     * @return target repeated up to target.length + SPECIES.length() notes, so a vector may be loaded from any of its positions
+     */
+    @Override
+    public short[] batchTarget(short[] target){
+        short[] tiled = new short[target.length + SPECIES.length()];
+        for (int i = 0; i < tiled.length; i += target.length) {
+            System.arraycopy(target, 0, tiled, i, Math.min(target.length, tiled.length - i));
+        }
+        return tiled;
+    }
+
+    @Override
+    public void evaluate(short[] genes, short[] target, short[] tiled, int[] fitness, int from, int to){
+        int length = target.length;
+        int start = from * length, end = to * length;
+        //Melody the next lane belongs to, notes of it not yet compared and its fitness so far
+        int melody = from, remaining = length, partial = 0;
+        int position = start;
+        for (int bound = start + SPECIES.loopBound(end - start); position < bound; position += SPECIES.length()) {
+            ShortVector difference = ShortVector.fromArray(SPECIES, genes, position)
+                    .lanewise(VectorOperators.XOR, ShortVector.fromArray(SPECIES, tiled, length - remaining));
+            VectorMask<Short> pitch = difference.and((short) Note.PITCH_MASK).eq((short) 0);
+            VectorMask<Short> noteLength = difference.and((short) Note.LENGTH_MASK).eq((short) 0);
+            //Matches in lanes before the last melody boundary
+            int lane = 0, counted = 0;
+            while(remaining <= SPECIES.length() - lane){
+                lane += remaining;
+                VectorMask<Short> prefix = PREFIXES[lane];
+                int matches = pitch.and(prefix).trueCount() + noteLength.and(prefix).trueCount();
+                fitness[melody++] = partial + matches - counted;
+                counted = matches;
+                remaining = length;
+                partial = 0;
+            }
+            partial += pitch.trueCount() + noteLength.trueCount() - counted;
+            remaining -= SPECIES.length() - lane;
+        }
+        if(melody == to) return;
+        fitness[melody] = partial + rangeFitness(genes, melody * length, target, length - remaining, length);
+        for (int i = melody + 1; i < to; i++) {
+            fitness[i] = rangeFitness(genes, i * length, target, 0, length);
+        }
+    }
+
+    @Override
+    public void evaluate(ByteBuffer genes, int offset, short[] target, short[] tiled, int[] fitness, int from, int to){
+        int length = target.length;
+        int end = offset + (to - from) * length;
+        int melody = from, remaining = length, partial = 0;
+        int position = offset;
+        for (int bound = offset + SPECIES.loopBound(end - offset); position < bound; position += SPECIES.length()) {
+            ShortVector difference = ShortVector.fromByteBuffer(SPECIES, genes, 2 * position, ByteOrder.nativeOrder())
+                    .lanewise(VectorOperators.XOR, ShortVector.fromArray(SPECIES, tiled, length - remaining));
+            VectorMask<Short> pitch = difference.and((short) Note.PITCH_MASK).eq((short) 0);
+            VectorMask<Short> noteLength = difference.and((short) Note.LENGTH_MASK).eq((short) 0);
+            int lane = 0, counted = 0;
+            while(remaining <= SPECIES.length() - lane){
+                lane += remaining;
+                VectorMask<Short> prefix = PREFIXES[lane];
+                int matches = pitch.and(prefix).trueCount() + noteLength.and(prefix).trueCount();
+                fitness[melody++] = partial + matches - counted;
+                counted = matches;
+                remaining = length;
+                partial = 0;
+            }
+            partial += pitch.trueCount() + noteLength.trueCount() - counted;
+            remaining -= SPECIES.length() - lane;
+        }
+        if(melody == to) return;
+        fitness[melody] = partial + rangeFitness(genes, offset + (melody - from) * length, target, length - remaining, length);
+        for (int i = melody + 1; i < to; i++) {
+            fitness[i] = rangeFitness(genes, offset + (i - from) * length, target, 0, length);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static VectorMask<Short>[] prefixes(){
+        VectorMask<Short>[] prefixes = new VectorMask[SPECIES.length() + 1];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = SPECIES.indexInRange(0, i);
+        }
+        return prefixes;
+    }
+}
@@ -0,0 +1,5 @@
+package enums;
+
+public enum AdaptationMethod {
+    NONE, HYPERMUTATION, RESTART
+}
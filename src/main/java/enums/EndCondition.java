@@ -1,5 +1,5 @@
 package enums;
 
 public enum EndCondition {
-    EXACT_MATCH, MAX_GENERATIONS, CLOSE_ENOUGH
+    EXACT_MATCH, MAX_GENERATIONS, CLOSE_ENOUGH, STAGNATION, TIME_BUDGET
 }
@@ -0,0 +1,5 @@
+package enums;
+
+public enum FitnessMethod {
+    EXACT, PITCH_DISTANCE, INTERVAL, RHYTHM_WEIGHTED
+}
@@ -0,0 +1,5 @@
+package enums;
+
+public enum MetricsFormat {
+    CSV, JSON_LINES
+}
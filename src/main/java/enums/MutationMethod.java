@@ -1,5 +1,5 @@
 package enums;
 
 public enum MutationMethod {
-    GENE, CHROMOSOME
+    GENE, CHROMOSOME, GEOMETRIC, PITCH_STEP, SWAP, INVERSION
 }
@@ -0,0 +1,5 @@
+package enums;
+
+public enum RandomSource {
+    SPLITTABLE, LXM, JDK, THREAD_LOCAL
+}
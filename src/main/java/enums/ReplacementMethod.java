@@ -0,0 +1,5 @@
+package enums;
+
+public enum ReplacementMethod {
+    GENERATIONAL, STEADY_STATE, MU_PLUS_LAMBDA, MU_COMMA_LAMBDA
+}